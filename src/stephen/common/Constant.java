@@ -53,6 +53,123 @@ public interface Constant {
      */
     public final int RECORD_FETCHSIZE = 1000;
     
+    /**
+     * The minimum number of records in the data file to search the records in
+     * parallel.
+     */
+    public int PARALLEL_SCAN_THRESHOLD = 100000;
+    
+    /**
+     * The maximum number of records searched by one task in a parallel search.
+     */
+    public int PARALLEL_SCAN_PARTITION = 20000;
+    
+    /**
+     * Map the record data area of the data file into memory instead of
+     * accessing it by file IO operations.
+     */
+    public boolean MEMORY_MAPPED_DATAFILE = true;
+    
+    /**
+     * The maximum size in bytes of one mapped segment of the data file; a data
+     * file larger than it is mapped by multiple segments.
+     */
+    public long MAPPED_SEGMENT_SIZE = 1024 * 1024 * 1024;
+    
+    /**
+     * Memory budget in bytes of the buffer pool which caches the most used
+     * records; 0 disables the buffer pool.
+     */
+    public long RECORD_BUFFER_POOL_SIZE = 4 * 1024 * 1024;
+    
+    /**
+     * File name suffix of the write-ahead log file, which is stored next to the
+     * database data file.
+     */
+    public String WAL_FILE_SUFFIX = ".wal";
+    
+    /**
+     * Interval of checkpoints which force the data file to the storage device
+     * and empty the write-ahead log file. it is milliseconds.
+     */
+    public long WAL_CHECKPOINT_INTERVAL = 5000;
+    
+    /**
+     * File name suffix of the primary key index file, which is stored next to
+     * the database data file.
+     */
+    public String INDEX_FILE_SUFFIX = ".idx";
+    
+    /**
+     * Whether the primary key index is stored out of the Java heap in an
+     * open-addressing hash table.
+     */
+    public boolean OFF_HEAP_PRIMARY_KEY_INDEX = true;
+    
+    /**
+     * Names of the database columns which have a secondary index answering
+     * the searches by prefix of column value.
+     */
+    public String[] PREFIX_INDEX_COLUMNS = { "name", "location" };
+    
+    /**
+     * Names of the database columns with a few distinct values which have a
+     * bitmap index.
+     */
+    public String[] BITMAP_INDEX_COLUMNS = { "size", "smoking" };
+    
+    /**
+     * Names of the database columns compared as numbers which have a range
+     * index.
+     */
+    public String[] RANGE_INDEX_COLUMNS = { "rate", "date" };
+    
+    /**
+     * Number of bits per primary key in the Bloom filter which screens the
+     * primary keys not in the primary key index.
+     */
+    public int BLOOM_FILTER_BITS_PER_KEY = 10;
+    
+    /**
+     * Maximum number of primary keys in the negative cache, which remembers the
+     * primary keys matching no records.
+     */
+    public int NEGATIVE_CACHE_SIZE = 1024;
+    
+    /**
+     * Cost of reading one record by its record number, relative to the cost of
+     * visiting one record while traversing the data file; it is used by the
+     * search planner to choose between the indexes and a traversal.
+     */
+    public double PLANNER_RANDOM_READ_COST = 4;
+    
+    /**
+     * Maximum number of search conditions whose compiled predicates are cached.
+     */
+    public int PREDICATE_CACHE_SIZE = 256;
+    
+    /**
+     * Default number of records fetched from database at a time when a search
+     * result set is iterated.
+     */
+    public int RESULTSET_FETCHSIZE = 500;
+    
+    /**
+     * Maximum number of searches whose matched record numbers are cached.
+     */
+    public int RESULT_CACHE_SIZE = 64;
+    
+    /**
+     * Memory budget in bytes of the matched record numbers in the cache.
+     */
+    public long RESULT_CACHE_MAX_BYTES = 8 * 1024 * 1024;
+    
+    /**
+     * Maximum age in milliseconds of the matched record numbers of a search in
+     * the cache.
+     */
+    public long RESULT_CACHE_MAX_AGE = 5 * 60 * 1000;
+    
     /**
      * Constant String "OR"
      */
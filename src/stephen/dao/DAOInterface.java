@@ -31,7 +31,8 @@ public interface DAOInterface<T> {
      * Select a list of data records from data store based on specific search
      * conditions. The search conditions are represented by <code>Spec</code>
      * object which flexible reflects different combination of retrieve
-     * requirements.
+     * requirements. An <code>OrderedSpec</code> object retrieves only the first
+     * records in its sort order, up to its limit.
      * 
      * @param spec
      *            describes the combination of search conditions.
@@ -41,6 +42,22 @@ public interface DAOInterface<T> {
      */
     ResultSet<T> select(Spec spec) throws DAOException;
 
+    /**
+     * Select data records from data store based on specific search conditions,
+     * fetching at most <code>fetchSize</code> records from data store at a
+     * time. The first records are fetched before this method returns; the
+     * following records are fetched as the result set is iterated.
+     * 
+     * @param spec
+     *            describes the combination of search conditions.
+     * @param fetchSize
+     *            the number of records fetched from data store at a time.
+     * @return result set which fetches the data records page by page.
+     * @throws DAOException
+     *             throws when some errors happen when accessing the data store.
+     */
+    ResultSet<T> select(Spec spec, int fetchSize) throws DAOException;
+
     /**
      * Delete a list of data records from the data store.
      * 
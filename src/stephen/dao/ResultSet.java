@@ -13,7 +13,11 @@ package stephen.dao;
  * requests. The result set contains a list of data records.<p>
  * 
  * It inherits from the interface <code>Iterable<T></code>. It is convenient to use enhanced 
- * <code>for</code> loop to retrieve data inside.
+ * <code>for</code> loop to retrieve data inside.<p>
+ * 
+ * The result set of a search is a cursor: the data records are fetched from the data 
+ * store page by page as an iterator advances, so only one page is held in memory at 
+ * a time. Each iterator starts from the first record again.
  * 
  * @author Stephen Liu
  * 
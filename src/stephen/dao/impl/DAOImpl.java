@@ -8,22 +8,24 @@
 package stephen.dao.impl;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.logging.Logger;
 
+import stephen.common.Constant;
 import stephen.common.Messages;
 import stephen.dao.DAOInterface;
 import stephen.dao.DataTransferObject;
 import stephen.dao.ResultSet;
 import stephen.dao.exception.DAOException;
 import stephen.dao.exception.RecordStaleException;
+import stephen.dao.spec.OrderedSpec;
 import stephen.dao.spec.Spec;
 import stephen.db.DBSchemaV2;
 import stephen.db.DuplicateKeyException;
 import stephen.db.PrimaryKey;
+import stephen.db.ResultPage;
+import stephen.db.SearchCondition;
+import stephen.db.SortOrder;
 import stephen.db.exception.RecordNotFoundException;
 import stephen.network.Command;
 import stephen.network.CommandHandler;
@@ -174,63 +176,66 @@ public class DAOImpl implements DAOInterface<DataTransferObject> {
 	}
 
 	/**
-	 * Search records from data file based on specific searching condition.
+	 * Search records from data file based on specific searching condition,
+	 * fetching <code>Constant.RESULTSET_FETCHSIZE</code> records at a time.
 	 * 
 	 * @see stephen.dao.DAOInterface#select(stephen.dao.spec.Spec)
 	 */
 	public ResultSet<DataTransferObject> select(Spec spec) throws DAOException {
+		return select(spec, Constant.RESULTSET_FETCHSIZE);
+	}
 
-		List<DataTransferObject> result = new ArrayList<DataTransferObject>();
-
-		if (spec == null) {
-			return new ResultSetImpl(result);
+	/**
+	 * Search records from data file based on specific searching condition. The
+	 * search condition of the <code>Spec</code> object is sent to data store in
+	 * one command for each page of records; the data of the matched records in
+	 * the page are returned in the response. The first page is fetched at once,
+	 * and the following pages are fetched as the result set is iterated.
+	 * <p>
+	 * If the <code>Spec</code> object is an <code>OrderedSpec</code>, the
+	 * records are sorted and limited in data store, and the limited records are
+	 * retrieved in one command regardless of <code>fetchSize</code>.
+	 * 
+	 * @see stephen.dao.DAOInterface#select(stephen.dao.spec.Spec, int)
+	 */
+	public ResultSet<DataTransferObject> select(Spec spec, final int fetchSize) throws DAOException {
+		final SearchCondition condition = (spec == null ? null : spec.getCondition());
+		if (condition == null) {
+			return new ResultSetImpl(new ArrayList<DataTransferObject>());
 		}
 
-		List<List<String>> criterias = spec.getCriteria();
-		Set<Integer> retrievedRecordsNumbers = new TreeSet<Integer>();
-
-		for (List<String> criteria : criterias) {
-			String[] normCriteria = getNormCriteria(criteria);
-
-			int[] selectedRecordNumbers = null;
+		if (spec instanceof OrderedSpec) {
+			OrderedSpec orderedSpec = (OrderedSpec) spec;
 			try {
-				selectedRecordNumbers = commandAdapter.find(normCriteria);
-			} catch (RecordNotFoundException e) {
-				// ignore
+				String[][] rows = commandAdapter.select(condition, orderedSpec.getSortOrder(),
+						orderedSpec.getLimit());
+				List<DataTransferObject> resultSet = new ArrayList<DataTransferObject>(rows.length);
+				for (String[] row : rows) {
+					resultSet.add(new DataTransferObject(row));
+				}
+				return new ResultSetImpl(resultSet);
 			} catch (Exception e) {
-				DAOException d = new DAOException(e.getMessage());
-				d.initCause(e);
-				throw d;
-			}
-
-			if (selectedRecordNumbers == null) {
-				continue;
-			}
-
-			// add into recordNumbers to accumulate all selected unique record
-			// numbers;
-			for (int rn : selectedRecordNumbers) {
-				retrievedRecordsNumbers.add(rn);
+				String errMsg = Messages.getString("DAOImpl.failedRetrieve", new Object[] { e.getMessage() });
+				DAOException re = new DAOException(errMsg);
+				re.initCause(e);
+				throw re;
 			}
 		}
 
-		try {
-			Iterator<Integer> rnItr = retrievedRecordsNumbers.iterator();
-			while (rnItr.hasNext()) {
-				int rn = rnItr.next();
-
-				String[] recordData = commandAdapter.read(rn);
-
-				result.add(new DataTransferObject(recordData));
+		ResultSetImpl.PageSource source = new ResultSetImpl.PageSource() {
+			public ResultPage fetch(int fromRecNo) throws DAOException {
+				try {
+					return commandAdapter.select(condition, fromRecNo, Math.max(fetchSize, 1));
+				} catch (Exception e) {
+					String errMsg = Messages.getString("DAOImpl.failedRetrieve", new Object[] { e.getMessage() });
+					DAOException re = new DAOException(errMsg);
+					re.initCause(e);
+					throw re;
+				}
 			}
-		} catch (Exception e) {
-			String errMsg = Messages.getString("DAOImpl.failedRetrieve", new Object[] { e.getMessage() });
-			DAOException re = new DAOException(errMsg);
-			re.initCause(e);
-			throw re;
-		}
+		};
 
-		return new ResultSetImpl(result);
+		return new ResultSetImpl(source.fetch(0), source);
 	}
 
 	/**
@@ -307,35 +312,6 @@ public class DAOImpl implements DAOInterface<DataTransferObject> {
 		return;
 	}
 
-	private String[] getNormCriteria(List<String> criteria) {
-		String[] normCriteria = new String[DBSchemaV2.getInstance().getColumnNumber()];
-
-		for (String pair : criteria) {
-
-			int idx = pair.indexOf(Spec.EQUALOP);
-
-			if (idx < 0) {
-				String errMsg = Messages.getString("_Global.operatorNotSupported", new Object[] { pair });
-				logger.warning(errMsg);
-				continue;
-			}
-
-			String name = pair.substring(0, idx);
-			String value = pair.substring(idx + 1, pair.length());
-
-			int seqNo = DBSchemaV2.getInstance().getColumnIndex(name);
-			if (seqNo == -1) {
-				String errMsg = Messages.getString("DAOImpl.columnNonexist", new Object[] { name, pair });
-				logger.warning(errMsg);
-				continue;
-			}
-
-			normCriteria[DBSchemaV2.getInstance().getColumnIndex(name)] = (value.length() == 0 ? null : value);
-		}
-
-		return normCriteria;
-	}
-
 	private boolean compareRecords(String[] record1, String[] record2) {
 		if (record1.length != record2.length) {
 			return false;
@@ -411,6 +387,33 @@ public class DAOImpl implements DAOInterface<DataTransferObject> {
 			return (int[]) r;
 		}
 
+		/**
+		 * Search one page of records by a search condition from remote database
+		 * server and retrieve the data of the matched records in the page.
+		 */
+		public ResultPage select(SearchCondition condition, int fromRecNo, int maxRows) throws Exception {
+
+			Command command = new Command(CommandType.FIND_SPEC_PAGE, condition, fromRecNo, maxRows);
+
+			Object r = this.handler.handle(command);
+
+			return (ResultPage) r;
+		}
+
+		/**
+		 * Search the first records in a sort order by a search condition from
+		 * remote database server and retrieve the data of at most a limited
+		 * number of them.
+		 */
+		public String[][] select(SearchCondition condition, SortOrder order, int limit) throws Exception {
+
+			Command command = new Command(CommandType.FIND_SPEC_TOP, condition, order, limit);
+
+			Object r = this.handler.handle(command);
+
+			return (String[][]) r;
+		}
+
 		/**
 		 * Lock a record in remote database server.
 		 * 
@@ -10,14 +10,22 @@ package stephen.dao.impl;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import stephen.common.Messages;
 import stephen.dao.DataTransferObject;
 import stephen.dao.ResultSet;
+import stephen.dao.exception.DAOException;
+import stephen.db.ResultPage;
 
 /**
  * This class implements the interface <code>ResultSet</code> by using class
  * <code>DataTransferObject</code> as parameterized class.
+ * <p>
+ * A result set created with a <code>PageSource</code> is a cursor: it holds
+ * the first page of records, and its iterators fetch the following pages from
+ * the page source when they reach the end of the current page. If a page
+ * can't be fetched, a RuntimeException will be thrown out by the iterator.
  * 
  * @see stephen.dao.ResultSet
  * @author Stephen Liu
@@ -27,6 +35,9 @@ public class ResultSetImpl extends ResultSet<DataTransferObject> {
 
 	private List<DataTransferObject> resultSet;
 
+	private ResultPage firstPage;
+	private PageSource source;
+
 	/**
 	 * Create a result set object.
 	 */
@@ -43,11 +54,36 @@ public class ResultSetImpl extends ResultSet<DataTransferObject> {
 		this.resultSet = resultSet;
 	}
 
+	/**
+	 * Create a result set object which fetches the records page by page.
+	 * 
+	 * @param firstPage the first page of records.
+	 * @param source    the source of the following pages.
+	 */
+	ResultSetImpl(ResultPage firstPage, PageSource source) {
+		this.firstPage = firstPage;
+		this.source = source;
+	}
+
 	/**
 	 * @see java.lang.Iterable#iterator()
 	 */
 	public Iterator<DataTransferObject> iterator() {
-		return new RSIterator();
+		return resultSet != null ? new RSIterator() : new CursorIterator();
+	}
+
+	/**
+	 * The source of the pages of a result set.
+	 */
+	interface PageSource {
+		/**
+		 * Fetch the page of records which begins from a record number.
+		 * 
+		 * @param fromRecNo the record number where the page begins.
+		 * @return the page of records.
+		 * @throws DAOException if the page can't be fetched.
+		 */
+		ResultPage fetch(int fromRecNo) throws DAOException;
 	}
 
 	private class RSIterator implements Iterator<DataTransferObject> {
@@ -78,16 +114,78 @@ public class ResultSetImpl extends ResultSet<DataTransferObject> {
 		}
 	}
 
+	private class CursorIterator implements Iterator<DataTransferObject> {
+		private ResultPage page = firstPage;
+		private int index = 0;
+
+		/**
+		 * Fetch the following pages until a page has records or there are no more
+		 * pages.
+		 * 
+		 * @see java.util.Iterator#hasNext()
+		 */
+		public boolean hasNext() {
+			while (index >= page.getRows().length && page.hasNext()) {
+				try {
+					page = source.fetch(page.getNextRecNo());
+					index = 0;
+				} catch (DAOException e) {
+					RuntimeException re = new RuntimeException(e.getMessage());
+					re.initCause(e);
+					throw re;
+				}
+			}
+
+			return index < page.getRows().length;
+		}
+
+		/**
+		 * @see java.util.Iterator#next()
+		 */
+		public DataTransferObject next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return new DataTransferObject(page.getRows()[index++]);
+		}
+
+		/**
+		 * Currently this method is not supported in the class.
+		 * 
+		 * @see java.util.Iterator#remove()
+		 */
+		public void remove() {
+			throw new UnsupportedOperationException(Messages.getString("_Global.removeNotSupported")); //$NON-NLS-1$
+
+		}
+	}
+
 	/**
-	 * Format all data in result set object to a string.
+	 * Format the data in result set object to a string. A cursor result set
+	 * formats only the records of the first page which it holds, and notes if
+	 * more records are not fetched; no page is fetched from the page source.
 	 * 
 	 * @return a string.
 	 */
 	public String toString() {
 		StringBuffer sb = new StringBuffer();
 
-		for (DataTransferObject item : resultSet) {
-			sb.append(item.toString());
+		if (resultSet != null) {
+			for (DataTransferObject item : resultSet) {
+				sb.append(item.toString());
+				sb.append("\n");
+			}
+			return sb.toString();
+		}
+
+		for (String[] row : firstPage.getRows()) {
+			sb.append(new DataTransferObject(row).toString());
+			sb.append("\n");
+		}
+		if (firstPage.hasNext()) {
+			sb.append(String.format("... more records from record %d are not fetched", //$NON-NLS-1$
+					firstPage.getNextRecNo()));
 			sb.append("\n");
 		}
 		return sb.toString();
@@ -10,6 +10,8 @@ package stephen.dao.spec;
 import java.util.ArrayList;
 import java.util.List;
 
+import stephen.db.SearchCondition;
+
 /**
  * This class describe 'AND' logic operation, which means both concatenated
  * conditions must be satisfied to match a record.Each of condition operation
@@ -134,6 +136,25 @@ public class ANDSpec extends Spec {
 		return mergedCriterias;
 	}
 
+	/**
+	 * Get the search condition for AND operation on the conditions of both
+	 * concatenated <code>Spec</code> objects, without expanding them into the
+	 * criteria of <code>getCriteria()</code>. If either <code>Spec</code>
+	 * object has no criteria, no record can match the AND operation, the same
+	 * as the empty product of <code>getCriteria()</code>, so null is returned.
+	 * 
+	 * @see stephen.dao.spec.Spec#getCondition()
+	 */
+	@Override
+	public SearchCondition getCondition() {
+		SearchCondition first = firstSpec.getCondition();
+		SearchCondition second = secondSpec.getCondition();
+		if (first == null || second == null) {
+			return null;
+		}
+		return SearchCondition.and(first, second);
+	}
+
 	/**
 	 * Format 'AND' condition to a string.
 	 * 
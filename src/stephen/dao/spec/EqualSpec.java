@@ -10,6 +10,8 @@ package stephen.dao.spec;
 import java.util.ArrayList;
 import java.util.List;
 
+import stephen.db.SearchCondition;
+
 /**
  * This class describe equivalent condition operation.
  * 
@@ -50,6 +52,17 @@ public class EqualSpec extends Spec {
 		return allCriterias;
 	}
 
+	/**
+	 * Get the search condition that the value of the key begins with the
+	 * expected value.
+	 * 
+	 * @see stephen.dao.spec.Spec#getCondition()
+	 */
+	@Override
+	public SearchCondition getCondition() {
+		return SearchCondition.prefix(name, expectedValue);
+	}
+
 	/**
 	 * Format equivalent condition to a string.
 	 * 
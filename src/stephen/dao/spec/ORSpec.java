@@ -10,6 +10,8 @@ package stephen.dao.spec;
 import java.util.ArrayList;
 import java.util.List;
 
+import stephen.db.SearchCondition;
+
 /**
  * This class describe 'OR' logic operation, which means at least any one of
  * concatenated conditions must be satisfied to match a record.Each of condition
@@ -125,6 +127,24 @@ public class ORSpec extends Spec {
 		return mergedCriterias;
 	}
 
+	/**
+	 * Get the search condition for OR operation on the conditions of both
+	 * concatenated <code>Spec</code> objects. A <code>Spec</code> object with
+	 * no criteria adds no record to the OR operation, so the condition of the
+	 * other one is returned; null if neither has criteria.
+	 * 
+	 * @see stephen.dao.spec.Spec#getCondition()
+	 */
+	@Override
+	public SearchCondition getCondition() {
+		SearchCondition first = firstSpec.getCondition();
+		SearchCondition second = secondSpec.getCondition();
+		if (first == null || second == null) {
+			return (first == null ? second : first);
+		}
+		return SearchCondition.or(first, second);
+	}
+
 	/**
 	 * Format 'OR' condition to a string.
 	 * 
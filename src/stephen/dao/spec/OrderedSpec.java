@@ -0,0 +1,112 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.dao.spec;
+
+import java.util.List;
+
+import stephen.db.SearchCondition;
+import stephen.db.SortOrder;
+
+/**
+ * This class wraps a search condition with a sort order and a limit: only the
+ * first matched records in the order of a column are retrieved, up to the
+ * limit. The records are sorted and limited in data store, so no more than the
+ * limit of records are transfered from data store.
+ * <p>
+ * For example, the 20 cheapest rooms in city 'Smallville':<br>
+ * <code>
+ *   new OrderedSpec(new EqualSpec("location","Smallville"), "rate", false, 20);
+ * </code>
+ * 
+ * @see stephen.dao.spec.Spec
+ * @see stephen.db.SortOrder
+ * @author Stephen Liu
+ * 
+ */
+public class OrderedSpec extends Spec {
+	private static final long serialVersionUID = 1L;
+
+	private Spec spec;
+	private String orderBy;
+	private boolean descending;
+	private int limit;
+
+	/**
+	 * Create an ordered condition.
+	 * 
+	 * @param spec       -- the condition which the records must match.
+	 * @param orderBy    -- the key name which the records are sorted by.
+	 * @param descending -- the records are sorted from the greatest value or not.
+	 * @param limit      -- the max number of records retrieved.
+	 */
+	public OrderedSpec(Spec spec, String orderBy, boolean descending, int limit) {
+		this.spec = spec;
+		this.orderBy = orderBy;
+		this.descending = descending;
+		this.limit = limit;
+	}
+
+	/**
+	 * Get the wrapped condition.
+	 * 
+	 * @return the wrapped condition.
+	 */
+	public Spec getSpec() {
+		return spec;
+	}
+
+	/**
+	 * Get the sort order of the records.
+	 * 
+	 * @return the sort order.
+	 */
+	public SortOrder getSortOrder() {
+		return new SortOrder(orderBy, descending);
+	}
+
+	/**
+	 * Get the max number of records retrieved.
+	 * 
+	 * @return the limit.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Get the criteria of the wrapped condition; the order and the limit are
+	 * not part of the criteria.
+	 * 
+	 * @see stephen.dao.spec.Spec#getCriteria()
+	 */
+	@Override
+	public List<List<String>> getCriteria() {
+		return spec.getCriteria();
+	}
+
+	/**
+	 * Get the search condition of the wrapped condition.
+	 * 
+	 * @see stephen.dao.spec.Spec#getCondition()
+	 */
+	@Override
+	public SearchCondition getCondition() {
+		return spec.getCondition();
+	}
+
+	/**
+	 * Format ordered condition to a string.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		String str = String.format("(%s ORDER BY %s %s LIMIT %d)", spec, orderBy, //$NON-NLS-1$
+				descending ? "DESC" : "ASC", limit); //$NON-NLS-1$ //$NON-NLS-2$
+		return str;
+	}
+}
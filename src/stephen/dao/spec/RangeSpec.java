@@ -0,0 +1,103 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.dao.spec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import stephen.db.RangeCriterion;
+import stephen.db.SearchCondition;
+
+/**
+ * This class describes range condition operation on a column whose values are
+ * compared as numbers: 'size', 'rate' and 'date'. The bounds are written in the
+ * same format as the column values, such as "$120.00" or "2005/08/01"; the
+ * currency symbol of a rate bound is optional.
+ * 
+ * @see stephen.dao.spec.Spec
+ * @see stephen.db.RangeCriterion
+ * @author Stephen Liu
+ * 
+ */
+public class RangeSpec extends Spec {
+	private static final long serialVersionUID = 1L;
+	private String name;
+	private String lowerBound;
+	private boolean lowerInclusive;
+	private String upperBound;
+	private boolean upperInclusive;
+
+	/**
+	 * Create a range condition.
+	 * 
+	 * @param name           -- key name.
+	 * @param lowerBound     -- the lower bound; null if no lower bound.
+	 * @param lowerInclusive -- the lower bound is included in the range or not.
+	 * @param upperBound     -- the upper bound; null if no upper bound.
+	 * @param upperInclusive -- the upper bound is included in the range or not.
+	 */
+	public RangeSpec(String name, String lowerBound, boolean lowerInclusive, String upperBound,
+			boolean upperInclusive) {
+		this.name = name;
+		this.lowerBound = lowerBound;
+		this.lowerInclusive = lowerInclusive;
+		this.upperBound = upperBound;
+		this.upperInclusive = upperInclusive;
+	}
+
+	/**
+	 * Get the criteria that key is in the range; each bound is one condition,
+	 * such as "rate&lt;120".
+	 * 
+	 * @see stephen.dao.spec.Spec#getCriteria()
+	 */
+	@Override
+	public List<List<String>> getCriteria() {
+		List<String> criterias1 = new ArrayList<String>();
+		if (lowerBound != null) {
+			criterias1.add(name + (lowerInclusive ? GREATEREQUALOP : GREATEROP) + lowerBound);
+		}
+		if (upperBound != null) {
+			criterias1.add(name + (upperInclusive ? LESSEQUALOP : LESSOP) + upperBound);
+		}
+
+		List<List<String>> allCriterias = new ArrayList<List<String>>();
+		allCriterias.add(criterias1);
+
+		return allCriterias;
+	}
+
+	/**
+	 * Get the search condition that the value of the key is in the range; a
+	 * range without bounds is matched by all records.
+	 * 
+	 * @see stephen.dao.spec.Spec#getCondition()
+	 */
+	@Override
+	public SearchCondition getCondition() {
+		if (lowerBound == null && upperBound == null) {
+			return SearchCondition.any();
+		}
+
+		return SearchCondition
+				.range(new RangeCriterion(name, lowerBound, lowerInclusive, upperBound, upperInclusive));
+	}
+
+	/**
+	 * Format range condition to a string.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		String str = String.format("(%s%s%s%s%s)", //$NON-NLS-1$
+				lowerBound == null ? "" : lowerBound, lowerBound == null ? "" : (lowerInclusive ? "<=" : "<"), name,
+				upperBound == null ? "" : (upperInclusive ? "<=" : "<"), upperBound == null ? "" : upperBound);
+		return str;
+	}
+
+}
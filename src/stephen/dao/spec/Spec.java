@@ -9,6 +9,11 @@ package stephen.dao.spec;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.logging.Logger;
+
+import stephen.common.Messages;
+import stephen.db.RangeCriterion;
+import stephen.db.SearchCondition;
 
 /**
  * This class provides a composite interface to construct a dynamically search condition
@@ -64,21 +69,52 @@ import java.util.List;
  *   <code> 
  *     new EqualSpec("location","Smallville");
  *   </code>  
+ * <p>
+ * 6. Retrieve all records in which the rate is under $120 and the room is available before 2005/08/01.<br>
+ *   The searching condition is:<br>
+ *   <code> 
+ *     new ANDSpec(new RangeSpec("rate",null,false,"120",false),
+ *                                      new RangeSpec("date",null,false,"2005/08/01",false));
+ *   </code>  
  * 
  * @see stephen.dao.spec.ANDSpec
  * @see stephen.dao.spec.ORSpec
  * @see stephen.dao.spec.EqualSpec
+ * @see stephen.dao.spec.RangeSpec
+ * @see stephen.dao.spec.OrderedSpec
  * 
  * @author Stephen Liu
  * 
  */
 public abstract class Spec implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static Logger logger = Logger.getLogger(Spec.class.getName());
+
     /**
      * Operator of equivalent.
      */
     public static String EQUALOP = "=";
 
+    /**
+     * Operator of less than.
+     */
+    public static String LESSOP = "<";
+
+    /**
+     * Operator of less than or equal to.
+     */
+    public static String LESSEQUALOP = "<=";
+
+    /**
+     * Operator of greater than.
+     */
+    public static String GREATEROP = ">";
+
+    /**
+     * Operator of greater than or equal to.
+     */
+    public static String GREATEREQUALOP = ">=";
+
     /**
      * Get a set of criteria,which has 'OR' relationship; Each criteria is
      * composed by a set of conditions,which have 'AND' relationship. 
@@ -95,4 +131,70 @@ public abstract class Spec implements Serializable {
      * @return a list of criteria.
      */
     public abstract List<List<String>> getCriteria();
+
+    /**
+     * Get the search condition which is evaluated by the database as a whole.
+     * <p>
+     * By default, the condition is built from the criteria returned by
+     * <code>getCriteria()</code>: an OR operation on the criteria, each of
+     * which is an AND operation on its conditions. The subclasses override it
+     * to keep their own structure of AND and OR operations.
+     * 
+     * @return search condition; null if no criteria are returned.
+     */
+    public SearchCondition getCondition() {
+        SearchCondition condition = null;
+        for (List<String> criteria : getCriteria()) {
+            SearchCondition conjunction = SearchCondition.any();
+            for (String expression : criteria) {
+                SearchCondition c = parseCondition(expression);
+                if (c != null) {
+                    conjunction = SearchCondition.and(conjunction, c);
+                }
+            }
+            condition = (condition == null ? conjunction : SearchCondition.or(condition, conjunction));
+        }
+
+        return condition;
+    }
+
+    /**
+     * Convert a condition expression into a search condition. An expression
+     * with unsupported operator is ignored.
+     * 
+     * @param expression
+     *            a condition expression, such as "name=Palace" or "rate<120".
+     * @return search condition; null if the expression is ignored.
+     */
+    protected static SearchCondition parseCondition(String expression) {
+        int idx = -1;
+        for (int i = 0; i < expression.length() && idx < 0; i++) {
+            char c = expression.charAt(i);
+            if (c == '=' || c == '<' || c == '>') {
+                idx = i;
+            }
+        }
+
+        if (idx < 0) {
+            String errMsg = Messages.getString("_Global.operatorNotSupported", new Object[] { expression });
+            logger.warning(errMsg);
+            return null;
+        }
+
+        String operator = expression.substring(idx, idx + 1);
+        if (!operator.equals(EQUALOP) && expression.startsWith(EQUALOP, idx + 1)) {
+            operator += EQUALOP;
+        }
+
+        String name = expression.substring(0, idx);
+        String value = expression.substring(idx + operator.length());
+
+        if (operator.equals(LESSOP) || operator.equals(LESSEQUALOP)) {
+            return SearchCondition.range(new RangeCriterion(name, null, false, value, operator.equals(LESSEQUALOP)));
+        } else if (operator.equals(GREATEROP) || operator.equals(GREATEREQUALOP)) {
+            return SearchCondition.range(new RangeCriterion(name, value, operator.equals(GREATEREQUALOP), null, false));
+        }
+
+        return SearchCondition.prefix(name, value);
+    }
 }
@@ -0,0 +1,245 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import stephen.common.Messages;
+import stephen.db.exception.RecordNotFoundException;
+import stephen.db.file.Record;
+
+/**
+ * BitmapIndex object is a secondary index on a column with a few distinct
+ * values, such as 'smoking' and 'size'. It keeps a compressed bitmap of the
+ * record numbers for each distinct trimmed column value, so the records
+ * matching criteria on several such columns are found by combining bitmaps
+ * without reading the data file.
+ * <p>
+ * The column value is read by <code>Record.getString()</code> and trimmed, the
+ * same as <code>RecordMatcher</code> compares it with the search criteria, so
+ * the records found by the index are exactly the ones matched by a criterion
+ * on the column.
+ * <p>
+ * The index can be searched by multiple threads at the same time; changes are
+ * serialized. The bitmaps returned by the index are copies which can be
+ * combined by the caller without locking.
+ * 
+ * @see stephen.db.RecordBitmap
+ * @author Stephen Liu
+ * 
+ */
+class BitmapIndex implements SecondaryIndex, Indexable<String> {
+	private final int columnIndex;
+	private final TreeMap<String, RecordBitmap> bitmaps = new TreeMap<String, RecordBitmap>();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Creates a BitmapIndex object.
+	 * 
+	 * @param columnIndex the index of the column in database schema.
+	 */
+	BitmapIndex(int columnIndex) {
+		this.columnIndex = columnIndex;
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#getColumnIndex()
+	 */
+	public int getColumnIndex() {
+		return columnIndex;
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#add(int, stephen.db.file.Record)
+	 */
+	public void add(int recNo, Record record) {
+		String value = getValue(record);
+
+		lock.writeLock().lock();
+		try {
+			RecordBitmap bitmap = bitmaps.get(value);
+			if (bitmap == null) {
+				bitmap = new RecordBitmap();
+				bitmaps.put(value, bitmap);
+			}
+			bitmap.add(recNo);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#remove(int, stephen.db.file.Record)
+	 */
+	public void remove(int recNo, Record record) {
+		String value = getValue(record);
+
+		lock.writeLock().lock();
+		try {
+			RecordBitmap bitmap = bitmaps.get(value);
+			if (bitmap != null) {
+				bitmap.remove(recNo);
+				if (bitmap.cardinality() == 0) {
+					bitmaps.remove(value);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#update(int, stephen.db.file.Record,
+	 *      stephen.db.file.Record)
+	 */
+	public void update(int recNo, Record oldRecord, Record newRecord) {
+		if (!getValue(oldRecord).equals(getValue(newRecord))) {
+			add(recNo, newRecord);
+			remove(recNo, oldRecord);
+		}
+	}
+
+	/**
+	 * Get the records whose column value begins with(or equals) a criterion.
+	 * 
+	 * @param criterion  the criterion of column value; it is trimmed before
+	 *                   searching.
+	 * @param exactMatch the column value must equal the criterion or not.
+	 * @return a new bitmap of the record numbers.
+	 */
+	RecordBitmap find(String criterion, boolean exactMatch) {
+		String from = criterion.trim();
+
+		lock.readLock().lock();
+		try {
+			if (exactMatch) {
+				RecordBitmap bitmap = bitmaps.get(from);
+				return (bitmap == null ? new RecordBitmap() : bitmap.copy());
+			}
+
+			// U+FFFF is greater than any character in the column values.
+			RecordBitmap result = new RecordBitmap();
+			for (RecordBitmap bitmap : bitmaps.subMap(from, from + '\uFFFF').values()) {
+				result = result.or(bitmap);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the records whose column value is accepted by a filter.
+	 * 
+	 * @param filter the filter of column values.
+	 * @return a new bitmap of the record numbers.
+	 */
+	RecordBitmap find(ValueFilter filter) {
+		lock.readLock().lock();
+		try {
+			RecordBitmap result = new RecordBitmap();
+			for (Map.Entry<String, RecordBitmap> entry : bitmaps.entrySet()) {
+				if (filter.accept(entry.getKey())) {
+					result = result.or(entry.getValue());
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Count the records whose column value begins with a criterion.
+	 * 
+	 * @param criterion the criterion of column value; it is trimmed before
+	 *                  counting.
+	 * @return the number of records.
+	 */
+	int count(String criterion) {
+		String from = criterion.trim();
+
+		lock.readLock().lock();
+		try {
+			int count = 0;
+			for (RecordBitmap bitmap : bitmaps.subMap(from, from + '\uFFFF').values()) {
+				count += bitmap.cardinality();
+			}
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Count the records whose column value is accepted by a filter.
+	 * 
+	 * @param filter the filter of column values.
+	 * @return the number of records.
+	 */
+	int count(ValueFilter filter) {
+		lock.readLock().lock();
+		try {
+			int count = 0;
+			for (Map.Entry<String, RecordBitmap> entry : bitmaps.entrySet()) {
+				if (filter.accept(entry.getKey())) {
+					count += entry.getValue().cardinality();
+				}
+			}
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the numbers of the records whose column value begins with the key.
+	 * 
+	 * @see stephen.db.Indexable#getIndex(java.lang.Object)
+	 */
+	public List<Integer> getIndex(String key) throws RecordNotFoundException {
+		List<Integer> recNos = find(key, false).toList();
+		if (recNos.isEmpty()) {
+			String errMsg = Messages.getString("Data.noRecordFound", new Object[] { key }); //$NON-NLS-1$
+			throw new RecordNotFoundException(errMsg);
+		}
+
+		return recNos;
+	}
+
+	/**
+	 * Read the trimmed value of the indexed column from a record.
+	 * 
+	 * @param record record data.
+	 * @return column value.
+	 */
+	private String getValue(Record record) {
+		return record.getString(columnIndex).trim();
+	}
+
+	/**
+	 * Interface to select the distinct column values, such as the sizes not less
+	 * than 4.
+	 * 
+	 * @author Stephen Liu
+	 * 
+	 */
+	interface ValueFilter {
+		/**
+		 * Determine if a column value is selected.
+		 * 
+		 * @param value trimmed column value.
+		 * @return true if the value is selected.
+		 */
+		public boolean accept(String value);
+	}
+
+}
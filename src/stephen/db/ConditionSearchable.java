@@ -0,0 +1,78 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+/**
+ * The interface of the database which can search records by a tree of search
+ * conditions combined by AND and OR operations, and return the data of the
+ * matched records at once.
+ * 
+ * @see stephen.db.SearchCondition
+ * @author Stephen Liu
+ * 
+ */
+public interface ConditionSearchable {
+    /**
+     * Returns the data of the records that match the specified search
+     * condition, in the order of the record numbers. The whole condition is
+     * evaluated in the database, so the records matching more than one branch
+     * of an OR operation are returned only once.
+     * 
+     * @param condition
+     *            search condition.
+     * @return the data of the matched records; an empty array if no records
+     *         match.
+     */
+    public String[][] select(SearchCondition condition);
+
+    /**
+     * Returns one page of the data of the records that match the specified
+     * search condition, in the order of the record numbers. The page holds the
+     * first matched records from the record number <code>fromRecNo</code>, up
+     * to <code>maxRows</code> records; the next page is selected from the
+     * record number given by the page.
+     * 
+     * @param condition
+     *            search condition.
+     * @param fromRecNo
+     *            the record number where the search begins; 0 for the first
+     *            page.
+     * @param maxRows
+     *            the max number of records in the page.
+     * @return the page of the matched records.
+     */
+    public ResultPage select(SearchCondition condition, int fromRecNo, int maxRows);
+
+    /**
+     * Returns the data of the first records in the specified sort order that
+     * match the specified search condition, up to <code>limit</code> records.
+     * Only the returned records are kept during the search, so the result is
+     * proportional to the limit rather than to the number of matched records.
+     * 
+     * @param condition
+     *            search condition.
+     * @param order
+     *            the sort order of the records.
+     * @param limit
+     *            the max number of records returned.
+     * @return the data of the first matched records in the order; an empty
+     *         array if no records match.
+     */
+    public String[][] select(SearchCondition condition, SortOrder order, int limit);
+
+    /**
+     * Describes how the specified search condition would be evaluated: which
+     * indexes are used and whether the data file is traversed, with the
+     * estimated number of records and cost of each step.
+     * 
+     * @param condition
+     *            search condition.
+     * @return the description of the search plan, one step per line.
+     */
+    public String explain(SearchCondition condition);
+}
@@ -10,8 +10,17 @@ package stephen.db;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import stephen.common.Constant;
@@ -20,11 +29,13 @@ import stephen.common.Utils;
 import stephen.db.exception.RecordNotFoundException;
 import stephen.db.exception.TransactionException;
 import stephen.db.file.Field;
-import stephen.db.file.FieldNotExistException;
 import stephen.db.file.FileSchema;
+import stephen.db.file.MappedPhysicalFile;
 import stephen.db.file.PhysicalFile;
 import stephen.db.file.Record;
-import stephen.db.file.RecordBlock;
+import stephen.db.file.RecordMatcher;
+import stephen.db.file.RecordVisitor;
+import stephen.db.file.WriteAheadLog;
 import stephen.db.lock.LockManager;
 import stephen.db.lock.StatefulLock;
 import stephen.db.lock.TransactionContext;
@@ -46,6 +57,9 @@ import stephen.db.lock.TransactionContext;
  * exception, the user just plays on a copy of the record data in memory cache,
  * only when users unlock the record, the final changed data will flush into
  * data file.<br>
+ * The changes are committed through a write-ahead log; when unlock() returns,
+ * the changes are stored on the storage device even though the data file is
+ * only forced by background checkpoints.<br>
  * For example, update a record:<br>
  * <code>
  *   Data db = new Data(...);<br>
@@ -130,7 +144,9 @@ import stephen.db.lock.TransactionContext;
  * <p>
  * To improve data search performance, an internal records index are set up and
  * maintained in the memory cache. the internal records index is part of back
- * end database server and shared by all clients.
+ * end database server and shared by all clients. A snapshot of the internal
+ * records index is saved into an index file after checkpoints and at shutdown,
+ * and it is loaded at startup instead of traversing the whole data file.
  * <p>
  * This implementation doesn't consider the situation of huge amount of data
  * records. When the memory occupied by internal records index becomes an issue
@@ -145,7 +161,7 @@ import stephen.db.lock.TransactionContext;
  * @author Stephen Liu
  * 
  */
-public class DBMainImpl implements DBMain {
+public class DBMainImpl implements DBMain, RangeSearchable, MultiSearchable, ConditionSearchable {
 	private static Logger logger = Logger.getLogger(DBMainImpl.class.getName());
 
 	/**
@@ -160,6 +176,61 @@ public class DBMainImpl implements DBMain {
 	 */
 	private PhysicalFile pfile;
 
+	/**
+	 * Write-ahead log which makes the changes on records durable before they are
+	 * applied into the data file.
+	 */
+	private WriteAheadLog wal;
+
+	/**
+	 * Index file where the snapshot of the internal records index is saved.
+	 */
+	private PrimaryKeyIndexFile indexFile;
+
+	/**
+	 * Secondary indexes on the columns listed in
+	 * <code>Constant.PREFIX_INDEX_COLUMNS</code>,
+	 * <code>Constant.BITMAP_INDEX_COLUMNS</code> and
+	 * <code>Constant.RANGE_INDEX_COLUMNS</code>.
+	 */
+	private final List<SecondaryIndex> secondaryIndexes = new ArrayList<SecondaryIndex>();
+
+	/**
+	 * The secondary indexes are built from the data file in background; the
+	 * records with lower record numbers are already in the indexes, so their
+	 * changes are applied to the indexes as well. It is
+	 * <code>Integer.MAX_VALUE</code> once the indexes are ready for searching.
+	 */
+	private volatile int secondaryIndexedCount;
+
+	/**
+	 * Lock which keeps the records from being changed while a part of the data
+	 * file is added into the secondary indexes; the changes take the read lock
+	 * and the builder of the indexes takes the write lock.
+	 */
+	private final ReentrantReadWriteLock secondaryIndexLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Compiler of the search conditions into predicates over the record layout
+	 * of the data file, which keeps the predicates of recent searches.
+	 */
+	private PredicateCompiler predicateCompiler;
+
+	/**
+	 * Record numbers matched by recent searches; the entries are invalidated by
+	 * the changes of records.
+	 */
+	private final ResultCache resultCache = new ResultCache();
+
+	/**
+	 * Lock objects to serialize creating and deleting records with same primary
+	 * key; each lock object is shared by the primary keys which have same
+	 * remainder of hash code divided by the number of lock objects.
+	 */
+	private final Object[] keyLocks = new Object[KEY_LOCK_STRIPES];
+
+	private static final int KEY_LOCK_STRIPES = 64;
+
 	/**
 	 * Database schema used to parse record data.
 	 */
@@ -175,10 +246,38 @@ public class DBMainImpl implements DBMain {
 	 */
 	public DBMainImpl(String datafile, DBSchema dbSchema) throws IOException {
 		this.dbSchema = dbSchema;
+		for (int i = 0; i < keyLocks.length; i++) {
+			keyLocks[i] = new Object();
+		}
+
 		this.pfile = initPhysicalFile(datafile, dbSchema);
+		this.predicateCompiler = new PredicateCompiler(dbSchema, pfile.getFileSchema().getLayout());
+		this.wal = new WriteAheadLog(pfile, datafile + Constant.WAL_FILE_SUFFIX);
+		this.indexFile = new PrimaryKeyIndexFile(datafile + Constant.INDEX_FILE_SUFFIX, dbSchema);
 
 		primaryKeyIndex = new PrimaryKeyIndice();
 		primaryKeyIndex.init();
+
+		initSecondaryIndexes();
+
+		// save the snapshot of the internal records index after checkpoints and
+		// at shutdown.
+		wal.setCheckpointListener(new WriteAheadLog.CheckpointListener() {
+			public void checkpointed() throws IOException {
+				primaryKeyIndex.save();
+			}
+		});
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				try {
+					wal.checkpoint();
+					primaryKeyIndex.save();
+				} catch (IOException e) {
+					logger.warning(Messages.getString("Data.failedSaveIndex", new Object[] { e.getMessage() })); //$NON-NLS-1$
+				}
+			}
+		});
 	}
 
 	/**
@@ -201,7 +300,21 @@ public class DBMainImpl implements DBMain {
 	 * @throws IOException
 	 */
 	private PhysicalFile initPhysicalFile(String datafile, DBSchema schema) throws IOException {
-		PhysicalFile pf = new PhysicalFile(datafile);
+		// the data file keeps a checksum of the primary keys to validate the
+		// snapshot of the primary key index; the field 'room' which isn't split
+		// yet is covered by the field 'name'.
+		int[] seqNo = schema.getPrimaryKeySequenceNo();
+		String[] primaryKeys = new String[seqNo.length];
+		for (int i = 0; i < seqNo.length; i++) {
+			primaryKeys[i] = schema.getColumnNames()[seqNo[i]];
+		}
+
+		PhysicalFile pf = null;
+		if (Constant.MEMORY_MAPPED_DATAFILE) {
+			pf = new MappedPhysicalFile(datafile, primaryKeys);
+		} else {
+			pf = new PhysicalFile(datafile, primaryKeys);
+		}
 
 		if (schema instanceof DBSchemaV2) {
 			FileSchema fs = pf.getFileSchema();
@@ -229,47 +342,72 @@ public class DBMainImpl implements DBMain {
 	 * <p>
 	 * If the record exists in data file, a <code>DuplicateKeyException</code> is
 	 * throws out. If any other IO exception happens, a RuntimeException will be
-	 * throws out.
+	 * throws out. If the primary key index is full, a RuntimeException is thrown
+	 * out before the record is written.
 	 * <p>
-	 * Notes: the method is synchronized to avoid concurrency issue where multiple
-	 * clients create different records on same record number.
+	 * Notes: the duplicated primary key is checked through the internal records
+	 * index. Creating and deleting records with the same primary key are
+	 * serialized by a lock object shared by a stripe of primary keys, so records
+	 * with different primary keys can be created in parallel;
+	 * <code>PhysicalFile</code> makes sure that they get different record numbers.
+	 * The record number is reserved without writing the record, and the new
+	 * record is written only by the commit of the write-ahead log, in the same
+	 * way as an updated or deleted record.
 	 * 
 	 * 
 	 * @see stephen.db.DBMain#create(java.lang.String[])
 	 */
-	public synchronized int create(String[] data) throws DuplicateKeyException {
-		// Determine if the record exists or not in data file.
-		String[] primaryKeySearchCriteria = PrimaryKey.constructSearchCriteriaByPrimaryKeyFields(dbSchema, data);
-
-		int[] duplicatedKeys = null;
-		try {
-			duplicatedKeys = find(primaryKeySearchCriteria, true, null);
-		} catch (RecordNotFoundException e) {
-			duplicatedKeys = null;
-		}
-
-		if (duplicatedKeys != null && duplicatedKeys.length > 0) {
-			String errMsg = Messages.getString("Data.duplicatedKey", new Object[] { Arrays.asList(data) }); //$NON-NLS-1$
-			DuplicateKeyException e = new DuplicateKeyException(errMsg);
-			throw e;
-		}
-
-		// Insert the new data
+	public int create(String[] data) throws DuplicateKeyException {
 		Record record = pfile.getEmptyRecord();
 		record.setData(data);
 
+		// The primary key is built from the record data, so it is trimmed and
+		// truncated in the same way as it is stored in data file.
+		PrimaryKey pk = new PrimaryKey(dbSchema, record);
+
 		int recNo;
-		try {
-			recNo = pfile.add(record);
+		synchronized (getKeyLock(pk)) {
+			// Determine if the record exists or not in data file.
+			if (primaryKeyIndex.contains(pk)) {
+				String errMsg = Messages.getString("Data.duplicatedKey", new Object[] { Arrays.asList(data) }); //$NON-NLS-1$
+				DuplicateKeyException e = new DuplicateKeyException(errMsg);
+				throw e;
+			}
 
-			// update new index
-			primaryKeyIndex.add(recNo, record);
+			// Refuse the new record before it is written if it can't be indexed.
+			if (primaryKeyIndex.isFull()) {
+				throw new RuntimeException(Messages.getString("Data.primaryKeyIndexFull")); //$NON-NLS-1$
+			}
 
-		} catch (IOException e) {
-			String errMsg = e.getMessage();
-			RuntimeException re = new RuntimeException(errMsg);
-			re.initCause(e);
-			throw re;
+			// Insert the new data
+			try {
+				primaryKeyIndex.beginChange();
+				secondaryIndexLock.readLock().lock();
+				try {
+					// the new record is written only by the commit.
+					recNo = pfile.allocateRecordNumber();
+					wal.commit(recNo, record);
+
+					// update new index
+					primaryKeyIndex.add(recNo, pk);
+					if (recNo < secondaryIndexedCount) {
+						for (SecondaryIndex secondaryIndex : secondaryIndexes) {
+							secondaryIndex.add(recNo, record);
+						}
+					}
+					primaryKeyIndex.invalidateMisses(pk);
+					resultCache.invalidate(recNo, record);
+				} finally {
+					secondaryIndexLock.readLock().unlock();
+					primaryKeyIndex.endChange();
+				}
+
+			} catch (IOException e) {
+				String errMsg = e.getMessage();
+				RuntimeException re = new RuntimeException(errMsg);
+				re.initCause(e);
+				throw re;
+			}
 		}
 
 		// reset lock object if exists in case the record was reused but the
@@ -455,10 +593,29 @@ public class DBMainImpl implements DBMain {
 					// delete record on database data file
 					Record record = retrieveRecord(recNo);
 
-					pfile.delete(recNo);
+					Record deletedRecord = record.copy();
+					deletedRecord.markDeleted();
 
-					// update indices object
-					primaryKeyIndex.remove(record);
+					PrimaryKey pk = new PrimaryKey(dbSchema, record);
+					synchronized (getKeyLock(pk)) {
+						primaryKeyIndex.beginChange();
+						secondaryIndexLock.readLock().lock();
+						try {
+							wal.commit(recNo, deletedRecord);
+
+							// update indices object
+							primaryKeyIndex.remove(recNo, pk);
+							if (recNo < secondaryIndexedCount) {
+								for (SecondaryIndex secondaryIndex : secondaryIndexes) {
+									secondaryIndex.remove(recNo, record);
+								}
+							}
+							resultCache.invalidate(recNo, null);
+						} finally {
+							secondaryIndexLock.readLock().unlock();
+							primaryKeyIndex.endChange();
+						}
+					}
 
 					logger.finer(Messages.getString("Data.deletedRecord", new Object[] { recNo }));
 
@@ -479,8 +636,22 @@ public class DBMainImpl implements DBMain {
 							throw new RuntimeException(errMsg);
 						}
 
+						Record oldRecord = record.copy();
 						record.setData(data);
-						pfile.updateRecord(recNo, record);
+
+						secondaryIndexLock.readLock().lock();
+						try {
+							wal.commit(recNo, record);
+
+							if (recNo < secondaryIndexedCount) {
+								for (SecondaryIndex secondaryIndex : secondaryIndexes) {
+									secondaryIndex.update(recNo, oldRecord, record);
+								}
+							}
+						} finally {
+							secondaryIndexLock.readLock().unlock();
+						}
+						resultCache.invalidate(recNo, record);
 
 						logger.finer(Messages.getString("Data.updatedRecord", new Object[] { recNo }));
 					}
@@ -534,83 +705,389 @@ public class DBMainImpl implements DBMain {
 	}
 
 	/**
-	 * Search the data records based on the criteria. If exactMatch is true,it will
-	 * return the records which exactly match non-null values in criteria,
-	 * otherwise,it will return the records which values begin with corresponding
-	 * criteria[n].
+	 * Search data according to prefix criteria and range conditions; the matched
+	 * records satisfy all of them. Range conditions on columns with range indexes
+	 * or bitmap indexes are answered by the indexes.
 	 * <p>
-	 * If IO exception happens, a RuntimeException will be throws out.
+	 * If a range condition is on a column which can't be compared as numbers, or
+	 * its bound can't be parsed, an IllegalArgumentException will be thrown out.
 	 * 
-	 * @param criteria   search condition.
-	 * @param exactMatch exactly match or not.
-	 * @param listener   record listener which will provide further immediately
-	 *                   processing for each matched record
-	 * @return matched records data.
-	 * @throws RecordNotFoundException if no records are found.
+	 * @see stephen.db.RangeSearchable#find(java.lang.String[],
+	 *      stephen.db.RangeCriterion[])
 	 */
-	private int[] find(String[] criteria, boolean exactMatch, RecordListener listener) throws RecordNotFoundException {
-		List<Integer> foundRecNos = new ArrayList<Integer>();
+	public int[] find(String[] criteria, RangeCriterion[] ranges) throws RecordNotFoundException {
+		List<RangePredicate> predicates = new ArrayList<RangePredicate>();
+		if (ranges != null) {
+			for (RangeCriterion range : ranges) {
+				predicates.add(new RangePredicate(dbSchema, range));
+			}
+		}
+
+		return find(criteria == null ? new String[0] : criteria, predicates, false, null);
+	}
 
-		// trace record number
-		int index = 0;
+	/**
+	 * Search data according to a set of criteria at the same time. Each criteria
+	 * is matched in the same way as <code>find(String[])</code>.
+	 * <p>
+	 * The criteria with primary key values or on columns with secondary indexes
+	 * are answered by the indexes. All the other criteria are evaluated against
+	 * each record during one traversal of the data file, which is split into
+	 * partitions searched in parallel if the data file holds at least
+	 * <code>Constant.PARALLEL_SCAN_THRESHOLD</code> records; so an OR search of
+	 * N criteria on columns without index reads the data file once instead of N
+	 * times.
+	 * 
+	 * @see stephen.db.MultiSearchable#find(java.lang.String[][])
+	 */
+	public int[][] find(String[][] criteriaSet) {
+		int[][] result = new int[criteriaSet.length][];
+
+		List<Integer> scanned = new ArrayList<Integer>();
+		List<RecordPredicate> predicates = new ArrayList<RecordPredicate>();
 		try {
-			while (true) {
-				RecordBlock records = pfile.getRecordBlock(index, Constant.RECORD_FETCHSIZE);
-				if (records == null) {
-					// end of the file
-					break;
+			for (int i = 0; i < criteriaSet.length; i++) {
+				String[] criteria = (criteriaSet[i] == null ? new String[dbSchema.getColumnNumber()] : criteriaSet[i]);
+
+				PrimaryKey pk = PrimaryKey.getPrimaryKey(dbSchema, criteria);
+				if (pk != null) {
+					try {
+						result[i] = Utils.getIntArray(primaryKeyIndex.getIndex(pk));
+					} catch (RecordNotFoundException e) {
+						result[i] = new int[0];
+					}
+					continue;
+				}
+
+				List<RangePredicate> ranges = Collections.<RangePredicate>emptyList();
+				RecordFilter filter = new RecordFilter(new RecordMatcher(criteria, false), ranges);
+				List<Integer> indexedRecNos = findByIndexes(criteria, ranges, false, filter);
+				if (indexedRecNos != null) {
+					result[i] = Utils.getIntArray(indexedRecNos);
+				} else {
+					scanned.add(i);
+					predicates.add(filter);
+				}
+			}
+
+			if (!predicates.isEmpty()) {
+				RecordPredicate[] scanPredicates = predicates.toArray(new RecordPredicate[predicates.size()]);
+				int recordCount = pfile.getRecordCount();
+				List<List<Integer>> foundRecNos;
+				if (recordCount >= Constant.PARALLEL_SCAN_THRESHOLD) {
+					foundRecNos = ForkJoinPool.commonPool().invoke(new ScanTask(scanPredicates, 0, recordCount));
+				} else {
+					foundRecNos = scan(scanPredicates, 0, recordCount);
+				}
+
+				for (int i = 0; i < scanned.size(); i++) {
+					result[scanned.get(i)] = Utils.getIntArray(foundRecNos.get(i));
+				}
+			}
+		} catch (IOException e) {
+			String errMsg = e.getMessage();
+			RuntimeException re = new RuntimeException(errMsg);
+			re.initCause(e);
+			throw re;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Search data according to a tree of search conditions and return the data of
+	 * the matched records.
+	 * <p>
+	 * The condition is planned by <code>SearchPlanner</code>. If the candidate
+	 * records can be found by the secondary indexes at less cost than traversing
+	 * the data file, only the candidates are read and checked against the
+	 * condition when needed. Otherwise, the whole condition is evaluated against
+	 * each record during one traversal of the data file, and the data of the
+	 * matched records are taken at the same time. The condition is evaluated by
+	 * the predicate compiled by <code>PredicateCompiler</code>.
+	 * <p>
+	 * If a range condition is on a column which can't be compared as numbers, or
+	 * its bound can't be parsed, an IllegalArgumentException will be thrown out.
+	 * 
+	 * @see stephen.db.ConditionSearchable#select(stephen.db.SearchCondition)
+	 */
+	public String[][] select(SearchCondition condition) {
+		return select(condition, 0, Integer.MAX_VALUE).getRows();
+	}
+
+	/**
+	 * Search one page of data according to a tree of search conditions. The
+	 * condition is planned and evaluated in the same way as
+	 * <code>select(SearchCondition)</code>, but the search begins from the
+	 * record <code>fromRecNo</code> and stops after the first record matched
+	 * beyond <code>maxRows</code> records, whose number is where the next page
+	 * begins. A traversal of the data file reads
+	 * <code>Constant.RECORD_FETCHSIZE</code> records at a time, so it stops soon
+	 * after the page is full.
+	 * <p>
+	 * The matched record numbers are kept in <code>ResultCache</code> by the
+	 * normalized condition. A page which is known by the cache is read from the
+	 * cached record numbers directly.
+	 * 
+	 * @see stephen.db.ConditionSearchable#select(stephen.db.SearchCondition, int,
+	 *      int)
+	 */
+	public ResultPage select(SearchCondition condition, int fromRecNo, int maxRows) {
+		SearchCondition normalized = condition.normalize();
+		PageCollector collector = new PageCollector(maxRows);
+
+		List<Integer> cachedRecNos = resultCache.find(normalized, fromRecNo, maxRows);
+		if (cachedRecNos != null) {
+			try {
+				for (int i = 0; i < cachedRecNos.size() && !collector.isFull(); i++) {
+					Record record = pfile.getRecord(cachedRecNos.get(i));
+					if (record != null) {
+						collector.process(cachedRecNos.get(i), record);
+					}
 				}
+			} catch (IOException e) {
+				String errMsg = e.getMessage();
+				RuntimeException re = new RuntimeException(errMsg);
+				re.initCause(e);
+				throw re;
+			}
+
+			return collector.getPage();
+		}
 
-				for (Record record : records) {
-					// filter out invalid record
-					if (record.isDeleted()) {
-						index++;
-						continue;
+		long generation = resultCache.getGeneration();
+		SearchPlanner.Plan plan = new SearchPlanner(dbSchema, getReadyIndexes(), pfile.getRecordCount())
+				.plan(normalized);
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine(plan.explain());
+		}
+
+		RecordPredicate predicate = predicateCompiler.compile(normalized);
+		try {
+			if (plan.isScan()) {
+				int recNo = Math.max(fromRecNo, 0);
+				while (!collector.isFull() && recNo < pfile.getRecordCount()) {
+					int toRecNo = (int) Math.min((long) recNo + Constant.RECORD_FETCHSIZE, Integer.MAX_VALUE);
+					scan(predicate, collector, recNo, toRecNo);
+					recNo = toRecNo;
+				}
+			} else {
+				boolean needsCheck = plan.needsCheck();
+				RecordBitmap candidates = plan.lookup();
+				int recNo = Math.max(fromRecNo, 0);
+				while (!collector.isFull()) {
+					List<Integer> recNos = candidates.toList(recNo, Constant.RECORD_FETCHSIZE);
+					if (recNos.isEmpty()) {
+						break;
 					}
 
-					// filter each record by the criteria
-					boolean isSatisfied = true;
-					for (int n = 0; n < criteria.length; n++) {
-						if (criteria[n] == null) { // A null value matches
-							// any field value
-							continue;
-						}
-						try {
-							String fieldValue = record.getString(n).trim();
-							String criteriaItem = criteria[n].trim();
-							if (exactMatch) {
-								if (!fieldValue.equals(criteriaItem)) {
-									isSatisfied = false;
-									break; // next record
-								}
-							} else {
-								// A non-null value in criteria[n] exactly
-								// match any field value that begins with
-								// criteria[n].
-								if (!fieldValue.startsWith(criteriaItem)) {
-									isSatisfied = false;
-									break;// next record
-								}
-							}
-						} catch (FieldNotExistException e) {
-							isSatisfied = false;
-							break;
+					for (int i = 0; i < recNos.size() && !collector.isFull(); i++) {
+						Record record = pfile.getRecord(recNos.get(i));
+						if (record != null && (!needsCheck || predicate.matches(record))) {
+							collector.process(recNos.get(i), record);
 						}
 					}
+					recNo = recNos.get(recNos.size() - 1) + 1;
+				}
+			}
+		} catch (IOException e) {
+			String errMsg = e.getMessage();
+			RuntimeException re = new RuntimeException(errMsg);
+			re.initCause(e);
+			throw re;
+		}
+
+		ResultPage page = collector.getPage();
+		resultCache.put(normalized, predicate, generation, fromRecNo, collector.getRecNos(), page.getNextRecNo());
+		return page;
+	}
+
+	/**
+	 * Search data according to a tree of search conditions and return the data of
+	 * the first matched records in a sort order. Only <code>limit</code> records
+	 * are kept during the search, in a heap of <code>TopRecords</code>, so the
+	 * memory and the returned data are proportional to the limit rather than to
+	 * the number of matched records.
+	 * <p>
+	 * If the sorted column has a range index and <code>SearchPlanner</code>
+	 * estimates that it costs less than the plan of the condition, the records
+	 * are read in the order of the index and the search stops once the rest of
+	 * the index can't get into the heap; the records whose value isn't in the
+	 * index are searched by a traversal of the data file only if not enough
+	 * records are found. Otherwise, if the matched record numbers are known by
+	 * <code>ResultCache</code>, only these records are read; if not, the
+	 * condition is evaluated by its plan as in
+	 * <code>select(SearchCondition)</code> and each matched record is offered
+	 * to the heap, and the matched record numbers are put into
+	 * <code>ResultCache</code>.
+	 * <p>
+	 * If the sorted column doesn't exist, or a range condition can't be
+	 * evaluated, an IllegalArgumentException will be thrown out.
+	 * 
+	 * @see stephen.db.ConditionSearchable#select(stephen.db.SearchCondition,
+	 *      stephen.db.SortOrder, int)
+	 */
+	public String[][] select(SearchCondition condition, SortOrder order, int limit) {
+		SearchCondition normalized = condition.normalize();
+		final TopRecords top = new TopRecords(dbSchema, order, limit);
+		if (limit <= 0) {
+			return top.getRows();
+		}
+
+		final RecordPredicate predicate = predicateCompiler.compile(normalized);
+		try {
+			long generation = resultCache.getGeneration();
+			SearchPlanner planner = new SearchPlanner(dbSchema, getReadyIndexes(), pfile.getRecordCount());
+			SearchPlanner.Plan plan = planner.plan(normalized);
+			RangeIndex index = getRangeIndex(top.getColumnIndex());
+			if (index != null && planner.prefersIndexOrder(plan, limit)) {
+				if (logger.isLoggable(Level.FINE)) {
+					logger.fine("INDEX ORDER " + order + " LIMIT " + limit + "\n" + plan.explain()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
 
-					if (isSatisfied) {
-						foundRecNos.add(index);
+				Iterator<RangeIndex.Entry> it = index.iterator(order.isDescending());
+				while (it.hasNext()) {
+					RangeIndex.Entry entry = it.next();
+					if (top.excludes(entry.getKey())) {
+						return top.getRows();
+					}
 
-						// do processing to the matched record.
-						if (listener != null) {
-							listener.process(index, record);
+					Record record = pfile.getRecord(entry.getRecNo());
+					if (record != null && predicate.matches(record)) {
+						top.offer(entry.getRecNo(), record);
+					}
+				}
+
+				// the records whose value can't be parsed aren't in the index; they
+				// come after the records in the index, so they are searched only
+				// if the heap isn't full.
+				if (!top.isFull()) {
+					scan(new RecordPredicate() {
+						public boolean matches(Record record) {
+							return !top.hasKey(record) && predicate.matches(record);
+						}
+					}, new RecordListener() {
+						public void process(int recNo, Record record) {
+							top.offer(recNo, record);
 						}
+					}, 0, Integer.MAX_VALUE);
+				}
+				return top.getRows();
+			}
+
+			List<Integer> cachedRecNos = resultCache.find(normalized, 0, Integer.MAX_VALUE);
+			if (cachedRecNos != null) {
+				for (int recNo : cachedRecNos) {
+					Record record = pfile.getRecord(recNo);
+					if (record != null) {
+						top.offer(recNo, record);
 					}
+				}
+				return top.getRows();
+			}
 
-					// trace the record number
-					index++;
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine(plan.explain());
+			}
+
+			List<Integer> matchedRecNos;
+			if (plan.isScan()) {
+				matchedRecNos = scan(predicate, new RecordListener() {
+					public void process(int recNo, Record record) {
+						top.offer(recNo, record);
+					}
+				}, 0, Integer.MAX_VALUE);
+			} else {
+				boolean needsCheck = plan.needsCheck();
+				matchedRecNos = new ArrayList<Integer>();
+				for (int recNo : plan.lookup().toList(0, Integer.MAX_VALUE)) {
+					Record record = pfile.getRecord(recNo);
+					if (record != null && (!needsCheck || predicate.matches(record))) {
+						top.offer(recNo, record);
+						matchedRecNos.add(recNo);
+					}
 				}
 			}
+			resultCache.put(normalized, predicate, generation, 0, matchedRecNos, -1);
+		} catch (IOException e) {
+			String errMsg = e.getMessage();
+			RuntimeException re = new RuntimeException(errMsg);
+			re.initCause(e);
+			throw re;
+		}
+
+		return top.getRows();
+	}
+
+	/**
+	 * Describe the plan which <code>select()</code> would take for a search
+	 * condition, with the estimated number of records and cost of each step.
+	 * 
+	 * @see stephen.db.ConditionSearchable#explain(stephen.db.SearchCondition)
+	 */
+	public String explain(SearchCondition condition) {
+		return new SearchPlanner(dbSchema, getReadyIndexes(), pfile.getRecordCount()).plan(condition).explain();
+	}
+
+	/**
+	 * Search the data records based on the criteria.
+	 * 
+	 * @param criteria   search condition.
+	 * @param exactMatch exactly match or not.
+	 * @param listener   record listener which will provide further immediately
+	 *                   processing for each matched record
+	 * @return matched records data.
+	 * @throws RecordNotFoundException if no records are found.
+	 * @see #find(String[], List, boolean, RecordListener)
+	 */
+	private int[] find(String[] criteria, boolean exactMatch, RecordListener listener)
+			throws RecordNotFoundException {
+		return find(criteria, Collections.<RangePredicate>emptyList(), exactMatch, listener);
+	}
+
+	/**
+	 * Search the data records based on the criteria. If exactMatch is true,it will
+	 * return the records which exactly match non-null values in criteria,
+	 * otherwise,it will return the records which values begin with corresponding
+	 * criteria[n]. The records must also be in the ranges of all range
+	 * predicates.
+	 * <p>
+	 * When no listener is provided and criteria are on columns with secondary
+	 * indexes, the records are found by the indexes; see
+	 * <code>findByIndexes()</code>. Otherwise, when no listener is provided and
+	 * the data file holds at least
+	 * <code>Constant.PARALLEL_SCAN_THRESHOLD</code> records, the records are
+	 * split into partitions which are searched in parallel on the common
+	 * <code>ForkJoinPool</code>; the matched record numbers are merged in order.
+	 * <p>
+	 * If IO exception happens, a RuntimeException will be throws out.
+	 * 
+	 * @param criteria   search condition.
+	 * @param ranges     range predicates.
+	 * @param exactMatch exactly match or not.
+	 * @param listener   record listener which will provide further immediately
+	 *                   processing for each matched record
+	 * @return matched records data.
+	 * @throws RecordNotFoundException if no records are found.
+	 */
+	private int[] find(final String[] criteria, List<RangePredicate> ranges, final boolean exactMatch,
+			final RecordListener listener) throws RecordNotFoundException {
+		List<Integer> foundRecNos;
+
+		try {
+			RecordFilter filter = new RecordFilter(new RecordMatcher(criteria, exactMatch), ranges);
+
+			int recordCount = pfile.getRecordCount();
+			List<Integer> indexedRecNos = (listener == null ? findByIndexes(criteria, ranges, exactMatch, filter)
+					: null);
+			if (indexedRecNos != null) {
+				foundRecNos = indexedRecNos;
+			} else if (listener == null && recordCount >= Constant.PARALLEL_SCAN_THRESHOLD) {
+				ScanTask task = new ScanTask(new RecordPredicate[] { filter }, 0, recordCount);
+				foundRecNos = ForkJoinPool.commonPool().invoke(task).get(0);
+			} else {
+				foundRecNos = scan(filter, listener, 0, Integer.MAX_VALUE);
+			}
 		} catch (IOException e) {
 			String errMsg = e.getMessage();
 			RuntimeException re = new RuntimeException(errMsg);
@@ -619,13 +1096,329 @@ public class DBMainImpl implements DBMain {
 		}
 
 		if (foundRecNos.size() == 0) {
-			String errMsg = Messages.getString("Data.noRecordFound", new Object[] { Arrays.asList(criteria) });
+			String condition = Arrays.asList(criteria) + (ranges.isEmpty() ? "" : " " + ranges);
+			String errMsg = Messages.getString("Data.noRecordFound", new Object[] { condition });
 			throw new RecordNotFoundException(errMsg);
 		}
 
 		return Utils.getIntArray(foundRecNos);
 	}
 
+	/**
+	 * Search the records in a range of record numbers.
+	 * 
+	 * @param filter    record predicate which filters each record by the search
+	 *                  condition.
+	 * @param listener  record listener which will provide further immediately
+	 *                  processing for each matched record; null if no further
+	 *                  processing.
+	 * @param fromRecNo the first record.
+	 * @param toRecNo   the record after the last record.
+	 * @return the numbers of matched records in order.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private List<Integer> scan(final RecordPredicate filter, final RecordListener listener, int fromRecNo,
+			int toRecNo) throws IOException {
+		final List<Integer> foundRecNos = new ArrayList<Integer>();
+
+		pfile.scan(fromRecNo, toRecNo, new RecordVisitor() {
+			public void visit(int recNo, Record record) {
+				// filter each record by the criteria
+				if (filter.matches(record)) {
+					foundRecNos.add(recNo);
+
+					// do processing to the matched record.
+					if (listener != null) {
+						listener.process(recNo, record);
+					}
+				}
+			}
+		});
+
+		return foundRecNos;
+	}
+
+	/**
+	 * Search the records in a range of record numbers by multiple predicates at
+	 * the same time; each record is read once and evaluated against all of
+	 * them.
+	 * 
+	 * @param predicates record predicates.
+	 * @param fromRecNo  the first record.
+	 * @param toRecNo    the record after the last record.
+	 * @return the numbers of the records matched by each predicate in order.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private List<List<Integer>> scan(final RecordPredicate[] predicates, int fromRecNo, int toRecNo)
+			throws IOException {
+		final List<List<Integer>> foundRecNos = new ArrayList<List<Integer>>(predicates.length);
+		for (int i = 0; i < predicates.length; i++) {
+			foundRecNos.add(new ArrayList<Integer>());
+		}
+
+		pfile.scan(fromRecNo, toRecNo, new RecordVisitor() {
+			public void visit(int recNo, Record record) {
+				for (int i = 0; i < predicates.length; i++) {
+					if (predicates[i].matches(record)) {
+						foundRecNos.get(i).add(recNo);
+					}
+				}
+			}
+		});
+
+		return foundRecNos;
+	}
+
+	/**
+	 * Search the records by the secondary indexes on the columns in criteria.
+	 * <p>
+	 * The bitmaps found by the bitmap indexes and the range indexes are
+	 * intersected; a range predicate on a column with a bitmap index selects the
+	 * bitmaps of the values in the range. If all criteria and range predicates
+	 * are answered by bitmap or range indexes, the intersection is the result and
+	 * the data file isn't read; otherwise the records found by the first prefix index
+	 * (or the intersection if no prefix index is used) are checked against the
+	 * criteria. A prefix criterion which is empty matches all records, so its
+	 * index isn't used.
+	 * 
+	 * @param criteria   search condition.
+	 * @param ranges     range predicates.
+	 * @param exactMatch exactly match or not.
+	 * @param filter     record filter which filters each record by the search
+	 *                   condition.
+	 * @return the numbers of matched records in order; null if no secondary index
+	 *         can be used.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private List<Integer> findByIndexes(String[] criteria, List<RangePredicate> ranges, boolean exactMatch,
+			RecordFilter filter) throws IOException {
+		RecordBitmap bitmap = null;
+		PrefixIndex prefixIndex = null;
+		boolean isCovered = true;
+
+		for (int n = 0; n < criteria.length; n++) {
+			if (criteria[n] == null) {
+				continue;
+			}
+
+			boolean isEmpty = criteria[n].trim().length() == 0;
+			if (isEmpty && !exactMatch) {
+				continue;
+			}
+
+			SecondaryIndex index = getSecondaryIndex(n);
+			if (index instanceof BitmapIndex) {
+				RecordBitmap found = ((BitmapIndex) index).find(criteria[n], exactMatch);
+				bitmap = (bitmap == null ? found : bitmap.and(found));
+			} else {
+				isCovered = false;
+				if (index instanceof PrefixIndex && prefixIndex == null && !isEmpty) {
+					prefixIndex = (PrefixIndex) index;
+				}
+			}
+		}
+
+		for (RangePredicate range : ranges) {
+			SecondaryIndex index = getSecondaryIndex(range.getColumnIndex());
+
+			RecordBitmap found;
+			if (index instanceof RangeIndex) {
+				found = ((RangeIndex) index).find(range);
+			} else if (index instanceof BitmapIndex) {
+				found = ((BitmapIndex) index).find(range);
+			} else {
+				isCovered = false;
+				continue;
+			}
+			bitmap = (bitmap == null ? found : bitmap.and(found));
+		}
+
+		if (prefixIndex != null) {
+			List<Integer> candidates = prefixIndex.find(criteria[prefixIndex.getColumnIndex()]);
+			if (bitmap != null) {
+				List<Integer> filtered = new ArrayList<Integer>(candidates.size());
+				for (int recNo : candidates) {
+					if (bitmap.contains(recNo)) {
+						filtered.add(recNo);
+					}
+				}
+				candidates = filtered;
+			}
+			return check(filter, candidates);
+		}
+
+		if (bitmap == null) {
+			return null;
+		}
+
+		return (isCovered ? bitmap.toList() : check(filter, bitmap.toList()));
+	}
+
+	/**
+	 * Get the secondary index on a column.
+	 * 
+	 * @param columnIndex the index of the column in database schema.
+	 * @return the secondary index; null if the column isn't indexed or the
+	 *         secondary indexes aren't ready.
+	 */
+	private SecondaryIndex getSecondaryIndex(int columnIndex) {
+		for (SecondaryIndex secondaryIndex : getReadyIndexes()) {
+			if (secondaryIndex.getColumnIndex() == columnIndex) {
+				return secondaryIndex;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Check the records found by a secondary index against the search condition.
+	 * 
+	 * @param filter     record filter which filters each record by the search
+	 *                   condition.
+	 * @param candidates the numbers of the records found by the index in order.
+	 * @return the numbers of matched records in order.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private List<Integer> check(RecordFilter filter, List<Integer> candidates) throws IOException {
+		List<Integer> foundRecNos = new ArrayList<Integer>(candidates.size());
+		for (int recNo : candidates) {
+			Record record = pfile.getRecord(recNo);
+			if (record != null && filter.matches(record)) {
+				foundRecNos.add(recNo);
+			}
+		}
+
+		return foundRecNos;
+	}
+
+	/**
+	 * Get the range index on a column.
+	 * 
+	 * @param columnIndex the index of the column in database schema.
+	 * @return the range index; null if the column has no range index or the
+	 *         secondary indexes aren't ready.
+	 */
+	private RangeIndex getRangeIndex(int columnIndex) {
+		for (SecondaryIndex index : getReadyIndexes()) {
+			if (index instanceof RangeIndex && index.getColumnIndex() == columnIndex) {
+				return (RangeIndex) index;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the secondary indexes which can be used by searches.
+	 * 
+	 * @return all secondary indexes if they are ready; otherwise, an empty list,
+	 *         so the records are searched by traversing the data file.
+	 */
+	private List<SecondaryIndex> getReadyIndexes() {
+		if (secondaryIndexedCount == Integer.MAX_VALUE) {
+			return secondaryIndexes;
+		}
+
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Set up the secondary indexes on the columns listed in
+	 * <code>Constant.PREFIX_INDEX_COLUMNS</code>,
+	 * <code>Constant.BITMAP_INDEX_COLUMNS</code> and
+	 * <code>Constant.RANGE_INDEX_COLUMNS</code>.
+	 * <p>
+	 * The indexes are built by traversing all records in data file in a
+	 * background thread, so opening the database doesn't wait for it; until the
+	 * indexes are ready, searches traverse the data file instead.
+	 */
+	private void initSecondaryIndexes() {
+		for (String columnName : Constant.PREFIX_INDEX_COLUMNS) {
+			int columnIndex = dbSchema.getColumnIndex(columnName);
+			if (columnIndex >= 0) {
+				secondaryIndexes.add(new PrefixIndex(columnIndex));
+			}
+		}
+		for (String columnName : Constant.BITMAP_INDEX_COLUMNS) {
+			int columnIndex = dbSchema.getColumnIndex(columnName);
+			if (columnIndex >= 0) {
+				secondaryIndexes.add(new BitmapIndex(columnIndex));
+			}
+		}
+		for (String columnName : Constant.RANGE_INDEX_COLUMNS) {
+			int columnIndex = dbSchema.getColumnIndex(columnName);
+			RangeKeyType keyType = RangeKeyType.forColumn(columnName);
+			if (columnIndex >= 0 && keyType != null) {
+				secondaryIndexes.add(new RangeIndex(columnIndex, keyType));
+			}
+		}
+
+		if (secondaryIndexes.isEmpty()) {
+			secondaryIndexedCount = Integer.MAX_VALUE;
+			return;
+		}
+
+		Thread builder = new Thread(new SecondaryIndexBuilder());
+		builder.setDaemon(true);
+		builder.start();
+	}
+
+	/**
+	 * Add the next block of records in data file into the secondary indexes.
+	 * The records aren't changed while the block is being added; the indexes are
+	 * ready once the last record is added.
+	 * 
+	 * @return true if the secondary indexes are ready.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private boolean buildSecondaryIndexes() throws IOException {
+		secondaryIndexLock.writeLock().lock();
+		try {
+			int fromRecNo = secondaryIndexedCount;
+			int toRecNo = (int) Math.min((long) fromRecNo + Constant.RECORD_FETCHSIZE, pfile.getRecordCount());
+
+			if (fromRecNo < toRecNo) {
+				pfile.scan(fromRecNo, toRecNo, new RecordVisitor() {
+					public void visit(int recNo, Record record) {
+						for (SecondaryIndex secondaryIndex : secondaryIndexes) {
+							secondaryIndex.add(recNo, record);
+						}
+					}
+				});
+			}
+
+			if (toRecNo >= pfile.getRecordCount()) {
+				secondaryIndexedCount = Integer.MAX_VALUE;
+				return true;
+			}
+
+			secondaryIndexedCount = toRecNo;
+			return false;
+		} finally {
+			secondaryIndexLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * SecondaryIndexBuilder object builds the secondary indexes block by block
+	 * in background.
+	 */
+	private class SecondaryIndexBuilder implements Runnable {
+		public void run() {
+			try {
+				while (!buildSecondaryIndexes()) {
+					//
+				}
+				logger.info(Messages.getString("Data.builtSecondaryIndexes", //$NON-NLS-1$
+						new Object[] { pfile.getRecordCount() }));
+			} catch (IOException e) {
+				logger.warning(Messages.getString("Data.failedBuildSecondaryIndexes", //$NON-NLS-1$
+						new Object[] { e.getMessage() }));
+			}
+		}
+	}
+
 	/**
 	 * Retrieve a record by the record number; If a specified record doesn't exist
 	 * or is marked as deleted in the database file,
@@ -658,24 +1451,99 @@ public class DBMainImpl implements DBMain {
 	 * This class implements the interface <code>Indexable</code> by parameterized
 	 * class <code>PrimaryKey</code>.<br>
 	 * It maintains an internal memory cache to store all the mappings for each
-	 * record's primary key to its record number.
+	 * record's primary key to its record number. The mappings are kept exactly the
+	 * same as the valid records in data file, so the existence of a primary key can
+	 * be determined by the index without searching the data file.
+	 * <p>
+	 * The index can be read and changed by multiple threads at the same time;
+	 * changes of primary keys are wrapped by <code>beginChange()</code> and
+	 * <code>endChange()</code>, which remove the snapshot of the index at first
+	 * and keep saving a new snapshot away until the change completes.
 	 * 
 	 * @author Stephen Liu
 	 * 
 	 */
 	private class PrimaryKeyIndice implements Indexable<PrimaryKey> {
-		private HashMap<PrimaryKey, Integer> indice = new HashMap<PrimaryKey, Integer>();
+		private final Map<PrimaryKey, Integer> indice;
+
+		// the indices have been changed since the snapshot was saved.
+		private volatile boolean isDirty;
+
+		// changes of primary keys hold the read lock; saving a snapshot holds the
+		// write lock.
+		private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+		// screens the primary keys which are not in the index; it is replaced
+		// only while the write lock is held.
+		private volatile PrimaryKeyBloomFilter bloomFilter;
+
+		// the number of primary keys put into the Bloom filter.
+		private final AtomicInteger bloomFilterKeys = new AtomicInteger();
+
+		// the most recently used primary keys which matched no records; guarded
+		// by itself.
+		private final Map<PrimaryKey, Boolean> missedKeys = new LinkedHashMap<PrimaryKey, Boolean>(16, 0.75f, true) {
+			static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<PrimaryKey, Boolean> eldest) {
+				return size() > Constant.NEGATIVE_CACHE_SIZE;
+			}
+		};
+
+		// increased whenever a record is created, so a search which has missed
+		// the new record doesn't put its primary key into the negative cache.
+		private long missGeneration;
 
 		/**
-		 * Set up index for all records in data file.
+		 * Creates a PrimaryKeyIndice object. The off-heap hash table and the Bloom
+		 * filter are sized from the number of records in data file; if the
+		 * off-heap table can't be allocated, the indices are kept in Java heap.
+		 */
+		PrimaryKeyIndice() {
+			bloomFilter = new PrimaryKeyBloomFilter(pfile.getRecordCount(), Constant.BLOOM_FILTER_BITS_PER_KEY);
+
+			Map<PrimaryKey, Integer> offHeapIndice = null;
+			if (Constant.OFF_HEAP_PRIMARY_KEY_INDEX) {
+				int[] seqNo = dbSchema.getPrimaryKeySequenceNo();
+				Record emptyRecord = pfile.getEmptyRecord();
+
+				// primary key values are separated by one byte.
+				int maxKeyLength = seqNo.length - 1;
+				for (int i : seqNo) {
+					maxKeyLength += emptyRecord.getFieldLength(i);
+				}
+
+				try {
+					offHeapIndice = new OffHeapPrimaryKeyIndex(dbSchema, maxKeyLength, pfile.getRecordCount());
+				} catch (IllegalStateException e) {
+					logger.warning(Messages.getString("Data.heapPrimaryKeyIndex", new Object[] { e.getMessage() })); //$NON-NLS-1$
+				}
+			}
+
+			indice = (offHeapIndice != null ? offHeapIndice : new ConcurrentHashMap<PrimaryKey, Integer>());
+		}
+
+		/**
+		 * Set up index for all records in data file. The indices are loaded from the
+		 * snapshot in index file if it is valid.
 		 */
 		void init() {
+			Map<PrimaryKey, Integer> snapshot = indexFile.load(pfile.getRecordCount(), pfile.getChecksum());
+			if (snapshot != null) {
+				indice.putAll(snapshot);
+				for (PrimaryKey pk : snapshot.keySet()) {
+					bloomFilter.put(pk);
+				}
+				bloomFilterKeys.set(snapshot.size());
+				return;
+			}
+
 			// Set up the primary key indices for all records in database
 			String[] criteria = { null, null };
 			try {
 				find(criteria, false, new RecordListener() {
 					public void process(int recNo, Record record) {
-						add(recNo, record);
+						add(recNo, new PrimaryKey(dbSchema, record));
 					}
 				});
 			} catch (RecordNotFoundException e) {
@@ -685,61 +1553,257 @@ public class DBMainImpl implements DBMain {
 			}
 		}
 
+		/**
+		 * Determine if a primary key exists in the index.
+		 * 
+		 * @param pk primary key.
+		 * @return true if a valid record has the primary key.
+		 */
+		boolean contains(PrimaryKey pk) {
+			return bloomFilter.mightContain(pk) && indice.containsKey(pk);
+		}
+
+		/**
+		 * Determine if no more primary keys can be added, since the off-heap hash
+		 * table can't be enlarged any more.
+		 * 
+		 * @return true if the index is full.
+		 */
+		boolean isFull() {
+			return indice instanceof OffHeapPrimaryKeyIndex && ((OffHeapPrimaryKeyIndex) indice).isFull();
+		}
+
 		/**
 		 * Add a new index entry.
 		 * 
 		 * @param recordNo record number.
-		 * @param record   record data which includes primary key value.
+		 * @param pk       primary key of the record.
 		 */
-		void add(Integer recordNo, Record record) {
-			PrimaryKey pk = new PrimaryKey(dbSchema, record);
-			if (!indice.containsKey(pk)) {
-				indice.put(pk, recordNo);
+		void add(int recordNo, PrimaryKey pk) {
+			bloomFilter.put(pk);
+			bloomFilterKeys.incrementAndGet();
+
+			if (indice.putIfAbsent(pk, recordNo) == null) {
+				isDirty = true;
 			}
 		}
 
 		/**
-		 * Remove a index entry for a specific record.
+		 * Remove the primary keys which match a new record from the negative
+		 * cache. It is called after the record has been added into all indexes.
 		 * 
-		 * @param record record data which includes primary key value.
+		 * @param pk primary key of the new record.
 		 */
-		void remove(Record record) {
-			PrimaryKey pk = new PrimaryKey(dbSchema, record);
-			if (!indice.containsKey(pk)) {
-				indice.remove(pk);
+		void invalidateMisses(PrimaryKey pk) {
+			synchronized (missedKeys) {
+				missGeneration++;
+				for (Iterator<PrimaryKey> it = missedKeys.keySet().iterator(); it.hasNext();) {
+					if (pk.startsWith(it.next())) {
+						it.remove();
+					}
+				}
 			}
 		}
 
+		/**
+		 * Remove the index entry for a specific record.
+		 * 
+		 * @param recordNo record number.
+		 * @param pk       primary key of the record.
+		 */
+		void remove(int recordNo, PrimaryKey pk) {
+			if (indice.remove(pk, recordNo)) {
+				isDirty = true;
+			}
+		}
+
+		/**
+		 * Start changing primary keys in data file; the snapshot of indices is
+		 * removed before the change.
+		 * 
+		 * @throws IOException if the snapshot can't be removed.
+		 */
+		void beginChange() throws IOException {
+			snapshotLock.readLock().lock();
+			try {
+				indexFile.invalidate();
+			} catch (IOException e) {
+				snapshotLock.readLock().unlock();
+				throw e;
+			}
+		}
+
+		/**
+		 * Complete changing primary keys in data file.
+		 */
+		void endChange() {
+			snapshotLock.readLock().unlock();
+		}
+
+		/**
+		 * Save the snapshot of indices into index file if the indices have been
+		 * changed. Creating and deleting records are blocked during saving.
+		 * <p>
+		 * The Bloom filter is rebuilt from the indices at the same time if more
+		 * primary keys have been put into it than it is sized for, since the
+		 * removed primary keys are still in it and its false positive rate
+		 * increases.
+		 * 
+		 * @throws IOException if an I/O error occurs.
+		 */
+		void save() throws IOException {
+			snapshotLock.writeLock().lock();
+			try {
+				if (bloomFilterKeys.get() > bloomFilter.getExpectedKeys()) {
+					rebuildBloomFilter();
+				}
+
+				if (!isDirty) {
+					return;
+				}
+
+				indexFile.save(indice, pfile.getRecordCount(), pfile.getChecksum());
+				isDirty = false;
+			} finally {
+				snapshotLock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Rebuild the Bloom filter from the primary keys in the indices. It is
+		 * called while the write lock is held, so no primary keys are added.
+		 */
+		private void rebuildBloomFilter() {
+			int keys = indice.size();
+			PrimaryKeyBloomFilter newFilter = new PrimaryKeyBloomFilter(
+					Math.max(keys * 2, pfile.getRecordCount()), Constant.BLOOM_FILTER_BITS_PER_KEY);
+			for (PrimaryKey pk : indice.keySet()) {
+				newFilter.put(pk);
+			}
+
+			bloomFilter = newFilter;
+			bloomFilterKeys.set(keys);
+		}
+
 		/**
 		 * Get a list of record numbers for a specified primary key(or prefix primary
 		 * key).
 		 * <p>
-		 * If the primary key(or prefix primary key) can't be found in internal records
-		 * index, the method will search whole data file and adds matched records into
-		 * the internal records index if found; otherwise,An
+		 * If the primary key can't be found in internal records index, the method
+		 * will search whole data file for the records which primary key begins with
+		 * the specified one; if no records are found, an
 		 * <code> RecordNotFoundException</code> will be thrown out.
+		 * <p>
+		 * A primary key rejected by the Bloom filter isn't looked up in the index.
+		 * A primary key which has matched no records is kept in a bounded negative
+		 * cache until a record matching it is created, so searching it again
+		 * fails at once without searching data file.
 		 * 
 		 * @see stephen.db.Indexable#getIndex(java.lang.Object)
 		 */
 		public List<Integer> getIndex(PrimaryKey key) throws RecordNotFoundException {
-			Integer recNo = indice.get(key);
+			if (bloomFilter.mightContain(key)) {
+				Integer recNo = indice.get(key);
 
-			if (recNo != null) {
-				return Arrays.asList(recNo);
+				if (recNo != null) {
+					return Arrays.asList(recNo);
+				}
 			}
 
-			final List<Integer> matchedRecordNumbers = new ArrayList<Integer>();
-			// look for database and add the matched records into the records
-			// index if found.
 			String[] criteria = key.constructSearchCriteria();
-			find(criteria, false, new RecordListener() {
-				public void process(int recNo, Record record) {
-					add(recNo, record);
-					matchedRecordNumbers.add(recNo);
+
+			long generation;
+			synchronized (missedKeys) {
+				if (missedKeys.get(key) != null) {
+					String errMsg = Messages.getString("Data.noRecordFound", //$NON-NLS-1$
+							new Object[] { Arrays.asList(criteria) });
+					throw new RecordNotFoundException(errMsg);
+				}
+				generation = missGeneration;
+			}
+
+			// look for database by prefix primary key.
+			int[] matchedRecordNumbers;
+			try {
+				matchedRecordNumbers = find(criteria, false, null);
+			} catch (RecordNotFoundException e) {
+				synchronized (missedKeys) {
+					if (generation == missGeneration) {
+						missedKeys.put(key, Boolean.TRUE);
+					}
+				}
+				throw e;
+			}
+
+			List<Integer> recNos = new ArrayList<Integer>(matchedRecordNumbers.length);
+			for (int matched : matchedRecordNumbers) {
+				recNos.add(matched);
+			}
+			return recNos;
+		}
+	}
+
+	/**
+	 * Get the lock object which serializes creating and deleting records with a
+	 * specific primary key.
+	 * 
+	 * @param pk primary key.
+	 * @return the lock object shared by the stripe of primary keys.
+	 */
+	private Object getKeyLock(PrimaryKey pk) {
+		return keyLocks[(pk.hashCode() & Integer.MAX_VALUE) % keyLocks.length];
+	}
+
+	/**
+	 * This class searches a range of records in parallel. A range larger than
+	 * <code>Constant.PARALLEL_SCAN_PARTITION</code> records is split into two
+	 * halves which are searched by separate tasks; the matched record numbers of
+	 * the lower half are followed by the ones of the upper half.
+	 * <p>
+	 * Each record is evaluated against all predicates; the numbers of the
+	 * records matched by each predicate are returned in a separate list.
+	 * 
+	 * @author Stephen Liu
+	 * 
+	 */
+	private class ScanTask extends RecursiveTask<List<List<Integer>>> {
+		static final long serialVersionUID = 1L;
+
+		private final RecordPredicate[] predicates;
+		private final int fromRecNo;
+		private final int toRecNo;
+
+		ScanTask(RecordPredicate[] predicates, int fromRecNo, int toRecNo) {
+			this.predicates = predicates;
+			this.fromRecNo = fromRecNo;
+			this.toRecNo = toRecNo;
+		}
+
+		@Override
+		protected List<List<Integer>> compute() {
+			if (toRecNo - fromRecNo <= Constant.PARALLEL_SCAN_PARTITION) {
+				try {
+					return scan(predicates, fromRecNo, toRecNo);
+				} catch (IOException e) {
+					String errMsg = e.getMessage();
+					RuntimeException re = new RuntimeException(errMsg);
+					re.initCause(e);
+					throw re;
 				}
-			});
+			}
+
+			int middle = fromRecNo + (toRecNo - fromRecNo) / 2;
+			ScanTask lower = new ScanTask(predicates, fromRecNo, middle);
+			ScanTask upper = new ScanTask(predicates, middle, toRecNo);
 
-			return matchedRecordNumbers;
+			lower.fork();
+			List<List<Integer>> upperRecNos = upper.compute();
+			List<List<Integer>> foundRecNos = lower.join();
+
+			for (int i = 0; i < predicates.length; i++) {
+				foundRecNos.get(i).addAll(upperRecNos.get(i));
+			}
+			return foundRecNos;
 		}
 	}
 
@@ -765,9 +1829,53 @@ public class DBMainImpl implements DBMain {
 		return lock;
 	}
 
+	/**
+	 * This class collects the data of the matched records into a page. After the
+	 * page is full, the number of the next matched record is kept as the start
+	 * of the next page, and the other records are ignored.
+	 * 
+	 * @author Stephen Liu
+	 * 
+	 */
+	private static class PageCollector implements RecordListener {
+		private final List<String[]> rows = new ArrayList<String[]>();
+		private final List<Integer> recNos = new ArrayList<Integer>();
+		private final int maxRows;
+		private int nextRecNo = -1;
+
+		PageCollector(int maxRows) {
+			this.maxRows = maxRows;
+		}
+
+		public void process(int recNo, Record record) {
+			if (rows.size() < maxRows) {
+				rows.add(record.getColumns());
+				recNos.add(recNo);
+			} else if (nextRecNo < 0) {
+				nextRecNo = recNo;
+			}
+		}
+
+		/**
+		 * Determine if the page is full and the start of the next page is found.
+		 */
+		boolean isFull() {
+			return nextRecNo >= 0;
+		}
+
+		List<Integer> getRecNos() {
+			return recNos;
+		}
+
+		ResultPage getPage() {
+			return new ResultPage(rows.toArray(new String[rows.size()][]), nextRecNo);
+		}
+	}
+
 	/**
 	 * Interface to process each matched record during traversing all data records
-	 * in database.
+	 * in database. The record is a read-only view which is only valid during the
+	 * processing.
 	 * 
 	 * @author Stephen Liu
 	 * 
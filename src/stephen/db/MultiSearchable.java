@@ -0,0 +1,31 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+/**
+ * The interface of the database which can search records by a set of criteria
+ * at the same time, such as the criteria of the branches of an OR search. The
+ * criteria which can't be answered by indexes are evaluated against each
+ * record during one traversal of the data file.
+ * 
+ * @author Stephen Liu
+ * 
+ */
+public interface MultiSearchable {
+    /**
+     * Returns the record numbers that match each of the specified criteria.
+     * Each criteria is matched in the same way as <code>DBMain.find()</code>;
+     * the result of criteriaSet[n] is returned in result[n].
+     * 
+     * @param criteriaSet
+     *            a set of search criteria; a null criteria means no criteria.
+     * @return record numbers of the records matched by each criteria in order;
+     *         an empty array if no records match the criteria.
+     */
+    public int[][] find(String[][] criteriaSet);
+}
@@ -0,0 +1,572 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+import stephen.common.Messages;
+import stephen.db.exception.RecordNotFoundException;
+
+/**
+ * This class maps primary keys to record numbers by an open-addressing hash
+ * table stored in a direct byte buffer out of the Java heap, so a large index
+ * doesn't create any objects for its entries and the garbage collector never
+ * traverses it.
+ * <p>
+ * The table is composed of fixed-width slots; each slot holds the hash code of
+ * the primary key(4 bytes), the record number(4 bytes), the length of primary
+ * key bytes(2 bytes) and the primary key bytes padded to the maximum length of
+ * primary key. A collision is resolved by linear probing; a removed entry leaves
+ * a tombstone in its slot which is re-used by a new entry and cleaned up when
+ * the table is rebuilt.
+ * <p>
+ * The slots are stored in segments of direct byte buffers; each segment holds
+ * a power of two slots and is smaller than 2 GB, so the table isn't limited by
+ * the size of one byte buffer. The table is sized from the expected number of
+ * entries, such as the number of records in data file. When the used slots
+ * exceed three quarters of the table, the entries are re-hashed into a new
+ * table twice as large(or into a table of the same size when most used slots
+ * are tombstones), and the old table is released. If the new table can't be
+ * allocated, the entries stay in the old table; once fifteen sixteenths of its
+ * slots are used, <code>isFull()</code> tells the callers to stop adding new
+ * entries, and the rest of the slots are left for the entries being added.
+ * <p>
+ * Lookups can run in parallel; changes are serialized. The methods inherited
+ * from <code>Map</code> box the record numbers for the callers, and iteration
+ * works on a snapshot of the entries.
+ * 
+ * @see stephen.db.PrimaryKey
+ * @author Stephen Liu
+ * 
+ */
+public class OffHeapPrimaryKeyIndex extends AbstractMap<PrimaryKey, Integer> implements Indexable<PrimaryKey> {
+	private static Logger logger = Logger.getLogger(OffHeapPrimaryKeyIndex.class.getName());
+
+	private static final int EMPTY = -1;
+	private static final int TOMBSTONE = -2;
+
+	private static final int HASH_OFFSET = 0;
+	private static final int RECNO_OFFSET = 4;
+	private static final int LENGTH_OFFSET = 8;
+	private static final int KEY_OFFSET = 10;
+
+	private static final int MIN_CAPACITY = 16;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final DBSchema schema;
+	private final int maxKeyLength;
+	private final int slotWidth;
+
+	private Table table;
+	private int capacity;
+
+	// number of entries.
+	private int size;
+
+	// number of slots occupied by entries or tombstones.
+	private int usedSlots;
+
+	// the largest table which may be allocated; it is lowered to the current
+	// size once a larger table can't be allocated.
+	private int maxCapacity = MAX_CAPACITY;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Creates an OffHeapPrimaryKeyIndex object.
+	 * 
+	 * @param schema           the database schema that the primary keys are bound
+	 *                         to.
+	 * @param maxKeyLength     the maximum length of the bytes of a primary key.
+	 * @param expectedEntries  the expected number of entries.
+	 * @throws IllegalStateException if the table can't be allocated.
+	 */
+	public OffHeapPrimaryKeyIndex(DBSchema schema, int maxKeyLength, int expectedEntries) {
+		this.schema = schema;
+		this.maxKeyLength = maxKeyLength;
+		this.slotWidth = KEY_OFFSET + maxKeyLength;
+
+		allocate(tableSizeFor(expectedEntries));
+	}
+
+	/**
+	 * Get the record number of a primary key.
+	 * 
+	 * @see stephen.db.Indexable#getIndex(java.lang.Object)
+	 */
+	public List<Integer> getIndex(PrimaryKey key) throws RecordNotFoundException {
+		Integer recNo = get(key);
+		if (recNo == null) {
+			String errMsg = Messages.getString("Data.noRecordFound", //$NON-NLS-1$
+					new Object[] { Arrays.asList(key.constructSearchCriteria()) });
+			throw new RecordNotFoundException(errMsg);
+		}
+
+		return Arrays.asList(recNo);
+	}
+
+	/**
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	@Override
+	public Integer get(Object key) {
+		if (!(key instanceof PrimaryKey)) {
+			return null;
+		}
+
+		lock.readLock().lock();
+		try {
+			int slot = find((PrimaryKey) key);
+			return (slot < 0 ? null : table.getInt(slot, RECNO_OFFSET));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public Integer put(PrimaryKey key, Integer recNo) {
+		return put(key, recNo, false);
+	}
+
+	/**
+	 * @see java.util.Map#putIfAbsent(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public Integer putIfAbsent(PrimaryKey key, Integer recNo) {
+		return put(key, recNo, true);
+	}
+
+	/**
+	 * @see java.util.AbstractMap#remove(java.lang.Object)
+	 */
+	@Override
+	public Integer remove(Object key) {
+		if (!(key instanceof PrimaryKey)) {
+			return null;
+		}
+
+		lock.writeLock().lock();
+		try {
+			int slot = find((PrimaryKey) key);
+			if (slot < 0) {
+				return null;
+			}
+
+			int recNo = table.getInt(slot, RECNO_OFFSET);
+			table.putInt(slot, RECNO_OFFSET, TOMBSTONE);
+			size--;
+			return recNo;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @see java.util.Map#remove(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public boolean remove(Object key, Object recNo) {
+		if (!(key instanceof PrimaryKey) || !(recNo instanceof Integer)) {
+			return false;
+		}
+
+		lock.writeLock().lock();
+		try {
+			int slot = find((PrimaryKey) key);
+			if (slot < 0 || table.getInt(slot, RECNO_OFFSET) != (Integer) recNo) {
+				return false;
+			}
+
+			table.putInt(slot, RECNO_OFFSET, TOMBSTONE);
+			size--;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @see java.util.AbstractMap#size()
+	 */
+	@Override
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Determine if no more entries should be put, since the table can't be
+	 * enlarged and fifteen sixteenths of its slots are used; the probing gets too
+	 * long beyond that.
+	 * 
+	 * @return true if the table is full.
+	 */
+	public boolean isFull() {
+		lock.readLock().lock();
+		try {
+			return capacity >= maxCapacity && usedSlots + 1 > capacity - capacity / 16;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @see java.util.AbstractMap#clear()
+	 */
+	@Override
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			allocate(MIN_CAPACITY);
+			maxCapacity = MAX_CAPACITY;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get a snapshot of all entries.
+	 * 
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	@Override
+	public Set<Map.Entry<PrimaryKey, Integer>> entrySet() {
+		final List<Map.Entry<PrimaryKey, Integer>> entries = new ArrayList<Map.Entry<PrimaryKey, Integer>>();
+
+		lock.readLock().lock();
+		try {
+			for (int slot = 0; slot < capacity; slot++) {
+				int recNo = table.getInt(slot, RECNO_OFFSET);
+				if (recNo >= 0) {
+					entries.add(new SimpleImmutableEntry<PrimaryKey, Integer>(new PrimaryKey(schema, table.getKey(slot)),
+							recNo));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		return new AbstractSet<Map.Entry<PrimaryKey, Integer>>() {
+			public Iterator<Map.Entry<PrimaryKey, Integer>> iterator() {
+				return entries.iterator();
+			}
+
+			public int size() {
+				return entries.size();
+			}
+		};
+	}
+
+	/**
+	 * Put an entry into the table.
+	 * 
+	 * @param key        primary key.
+	 * @param recNo      record number.
+	 * @param ifAbsent   only put the entry if the primary key doesn't exist.
+	 * @return the previous record number of the primary key; null if the primary
+	 *         key didn't exist.
+	 * @throws IllegalStateException if the table has no free slot and can't be
+	 *                               enlarged.
+	 */
+	private Integer put(PrimaryKey key, int recNo, boolean ifAbsent) {
+		byte[] bytes = key.getBytes();
+		if (bytes.length > maxKeyLength || recNo < 0) {
+			throw new IllegalArgumentException(Messages.getString("OffHeapPrimaryKeyIndex.invalidEntry", //$NON-NLS-1$
+					new Object[] { Arrays.asList(key.constructSearchCriteria()), recNo }));
+		}
+
+		lock.writeLock().lock();
+		try {
+			int slot = find(key);
+			if (slot >= 0) {
+				int previous = table.getInt(slot, RECNO_OFFSET);
+				if (!ifAbsent) {
+					table.putInt(slot, RECNO_OFFSET, recNo);
+				}
+				return previous;
+			}
+
+			if (usedSlots + 1 > capacity / 4 * 3) {
+				resize(size + 1);
+			}
+
+			// one free slot at least ends the probing of a missing key.
+			if (usedSlots + 1 >= capacity) {
+				throw new IllegalStateException(Messages.getString("OffHeapPrimaryKeyIndex.noFreeSlot", //$NON-NLS-1$
+						new Object[] { capacity }));
+			}
+
+			insert(bytes, key.hashCode(), recNo);
+			size++;
+			return null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Look for the slot of a primary key.
+	 * 
+	 * @param key primary key.
+	 * @return slot index; -1 if the primary key doesn't exist.
+	 */
+	private int find(PrimaryKey key) {
+		byte[] bytes = key.getBytes();
+		if (bytes.length > maxKeyLength) {
+			return -1;
+		}
+
+		int hash = key.hashCode();
+		int mask = capacity - 1;
+		for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+			int recNo = table.getInt(slot, RECNO_OFFSET);
+			if (recNo == EMPTY) {
+				return -1;
+			}
+
+			if (recNo != TOMBSTONE && table.getInt(slot, HASH_OFFSET) == hash && table.isKeyEqual(slot, bytes)) {
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * Insert an entry into the first free slot or tombstone; the primary key
+	 * must not exist in the table.
+	 * 
+	 * @param bytes primary key bytes.
+	 * @param hash  hash code of the primary key.
+	 * @param recNo record number.
+	 */
+	private void insert(byte[] bytes, int hash, int recNo) {
+		int mask = capacity - 1;
+		int slot = spread(hash) & mask;
+		while (table.getInt(slot, RECNO_OFFSET) >= 0) {
+			slot = (slot + 1) & mask;
+		}
+
+		if (table.getInt(slot, RECNO_OFFSET) == EMPTY) {
+			usedSlots++;
+		}
+
+		table.putInt(slot, HASH_OFFSET, hash);
+		table.putInt(slot, RECNO_OFFSET, recNo);
+		table.putKey(slot, bytes);
+	}
+
+	/**
+	 * Re-hash the entries into a table sized for the expected number of entries;
+	 * the table is re-used if it is as large as it can be, unless most used slots
+	 * are tombstones. If the new table can't be allocated, a warning is logged and
+	 * the current table is kept.
+	 * 
+	 * @param expectedEntries the expected number of entries.
+	 */
+	private void resize(int expectedEntries) {
+		int newCapacity = Math.min(tableSizeFor(expectedEntries), maxCapacity);
+		if (newCapacity <= capacity && expectedEntries > capacity / 2) {
+			return;
+		}
+
+		try {
+			allocate(newCapacity, table, capacity);
+		} catch (IllegalStateException e) {
+			maxCapacity = capacity;
+			logger.warning(e.getMessage());
+		}
+	}
+
+	/**
+	 * Allocate an empty table.
+	 * 
+	 * @param newCapacity the number of slots.
+	 * @throws IllegalStateException if the table can't be allocated.
+	 */
+	private void allocate(int newCapacity) {
+		allocate(newCapacity, null, 0);
+	}
+
+	/**
+	 * Allocate a new table and re-hash the entries in the old table into it. The
+	 * old table is kept if the new one can't be allocated.
+	 * 
+	 * @param newCapacity the number of slots.
+	 * @param oldTable    the old table; null if no entries are re-hashed.
+	 * @param oldCapacity the number of slots in the old table.
+	 * @throws IllegalStateException if the table can't be allocated.
+	 */
+	private void allocate(int newCapacity, Table oldTable, int oldCapacity) {
+		Table newTable;
+		try {
+			newTable = new Table(newCapacity, slotWidth);
+		} catch (OutOfMemoryError e) {
+			IllegalStateException ise = new IllegalStateException(
+					Messages.getString("OffHeapPrimaryKeyIndex.full", new Object[] { newCapacity })); //$NON-NLS-1$
+			ise.initCause(e);
+			throw ise;
+		}
+
+		table = newTable;
+		capacity = newCapacity;
+		size = 0;
+		usedSlots = 0;
+
+		if (oldTable == null) {
+			return;
+		}
+
+		for (int slot = 0; slot < oldCapacity; slot++) {
+			int recNo = oldTable.getInt(slot, RECNO_OFFSET);
+			if (recNo < 0) {
+				continue;
+			}
+
+			insert(oldTable.getKey(slot), oldTable.getInt(slot, HASH_OFFSET), recNo);
+			size++;
+		}
+	}
+
+	/**
+	 * Calculate the number of slots for the expected number of entries; it is a
+	 * power of two which keeps the table at most half full.
+	 * 
+	 * @param expectedEntries the expected number of entries.
+	 * @return the number of slots.
+	 */
+	private static int tableSizeFor(int expectedEntries) {
+		long minCapacity = Math.max((long) expectedEntries * 2, MIN_CAPACITY);
+		if (minCapacity > MAX_CAPACITY) {
+			return MAX_CAPACITY;
+		}
+
+		return Integer.highestOneBit((int) minCapacity - 1) << 1;
+	}
+
+	/**
+	 * Spread the higher bits of the hash code to the lower bits which are used to
+	 * locate the slot.
+	 * 
+	 * @param hash hash code.
+	 * @return spread hash code.
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * The slots of a table in segments of direct byte buffers; each segment
+	 * holds the same power of two slots, so a slot is located by the higher and
+	 * lower bits of its index.
+	 */
+	private static class Table {
+		private final ByteBuffer[] segments;
+		private final int slotWidth;
+		private final int segmentShift;
+		private final int segmentMask;
+
+		/**
+		 * Allocate the segments of a table with all slots empty.
+		 * 
+		 * @param capacity  the number of slots, which is a power of two.
+		 * @param slotWidth the length of a slot in bytes.
+		 */
+		Table(int capacity, int slotWidth) {
+			this.slotWidth = slotWidth;
+
+			int segmentSlots = Math.min(capacity, Integer.highestOneBit(Integer.MAX_VALUE / slotWidth));
+			segmentShift = Integer.numberOfTrailingZeros(segmentSlots);
+			segmentMask = segmentSlots - 1;
+
+			segments = new ByteBuffer[capacity / segmentSlots];
+			for (int i = 0; i < segments.length; i++) {
+				segments[i] = ByteBuffer.allocateDirect(segmentSlots * slotWidth);
+				for (int slot = 0; slot < segmentSlots; slot++) {
+					segments[i].putInt(slot * slotWidth + RECNO_OFFSET, EMPTY);
+				}
+			}
+		}
+
+		int getInt(int slot, int offset) {
+			return segments[slot >>> segmentShift].getInt(getPosition(slot) + offset);
+		}
+
+		void putInt(int slot, int offset, int value) {
+			segments[slot >>> segmentShift].putInt(getPosition(slot) + offset, value);
+		}
+
+		/**
+		 * Get the primary key bytes in a slot.
+		 */
+		byte[] getKey(int slot) {
+			ByteBuffer segment = segments[slot >>> segmentShift];
+			int base = getPosition(slot);
+			byte[] bytes = new byte[segment.getShort(base + LENGTH_OFFSET)];
+			segment.get(base + KEY_OFFSET, bytes);
+			return bytes;
+		}
+
+		/**
+		 * Put the primary key bytes into a slot.
+		 */
+		void putKey(int slot, byte[] bytes) {
+			ByteBuffer segment = segments[slot >>> segmentShift];
+			int base = getPosition(slot);
+			segment.putShort(base + LENGTH_OFFSET, (short) bytes.length);
+			segment.put(base + KEY_OFFSET, bytes);
+		}
+
+		/**
+		 * Compare the primary key bytes in a slot with the specific ones.
+		 */
+		boolean isKeyEqual(int slot, byte[] bytes) {
+			ByteBuffer segment = segments[slot >>> segmentShift];
+			int base = getPosition(slot);
+			if (segment.getShort(base + LENGTH_OFFSET) != bytes.length) {
+				return false;
+			}
+
+			for (int i = 0; i < bytes.length; i++) {
+				if (segment.get(base + KEY_OFFSET + i) != bytes[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		private int getPosition(int slot) {
+			return (slot & segmentMask) * slotWidth;
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import stephen.common.Constant;
+import stephen.db.file.FieldMatcher;
+import stephen.db.file.Record;
+import stephen.db.file.RecordLayout;
+
+/**
+ * PredicateCompiler object turns a <code>SearchCondition</code> tree into a
+ * predicate specialized for the record layout of the data file. A prefix
+ * condition becomes a <code>FieldMatcher</code> which knows the position of its
+ * field, instead of a criteria array checked column by column; the operands of
+ * nested AND or OR operations are flattened into one array.
+ * <p>
+ * The predicate is simplified while it is compiled: a condition matched by all
+ * records is removed from an AND operation and makes an OR operation matched by
+ * all records, and the reverse for a condition which no record can match. The
+ * prefix conditions of an AND operation are evaluated before the other
+ * operands, since comparing a few bytes costs less than parsing a range value.
+ * <p>
+ * The compiled predicates are immutable and cached by their search conditions,
+ * up to <code>Constant.PREDICATE_CACHE_SIZE</code> conditions used recently, so
+ * a repeated search doesn't compile its condition again.
+ * 
+ * @see stephen.db.SearchCondition
+ * @see stephen.db.file.FieldMatcher
+ * @author Stephen Liu
+ * 
+ */
+class PredicateCompiler {
+	/**
+	 * The predicate which is matched by all records.
+	 */
+	static final RecordPredicate ANY = new RecordPredicate() {
+		public boolean matches(Record record) {
+			return true;
+		}
+	};
+
+	/**
+	 * The predicate which can't be matched by any record.
+	 */
+	static final RecordPredicate NONE = new RecordPredicate() {
+		public boolean matches(Record record) {
+			return false;
+		}
+	};
+
+	private final DBSchema schema;
+	private final RecordLayout layout;
+
+	// compiled predicates by search conditions, in the order of access.
+	private final Map<SearchCondition, RecordPredicate> compiled = new LinkedHashMap<SearchCondition, RecordPredicate>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<SearchCondition, RecordPredicate> eldest) {
+			return size() > Constant.PREDICATE_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Creates a PredicateCompiler object.
+	 * 
+	 * @param schema database schema.
+	 * @param layout the layout of the records in data file.
+	 */
+	PredicateCompiler(DBSchema schema, RecordLayout layout) {
+		this.schema = schema;
+		this.layout = layout;
+	}
+
+	/**
+	 * Get the database schema.
+	 * 
+	 * @return database schema.
+	 */
+	DBSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Compile a search condition, or take its predicate from the cache.
+	 * 
+	 * @param condition search condition.
+	 * @return the predicate.
+	 * @throws IllegalArgumentException if a range condition can't be evaluated.
+	 */
+	RecordPredicate compile(SearchCondition condition) {
+		synchronized (compiled) {
+			RecordPredicate predicate = compiled.get(condition);
+			if (predicate != null) {
+				return predicate;
+			}
+		}
+
+		RecordPredicate predicate = condition.compile(this);
+		synchronized (compiled) {
+			compiled.put(condition, predicate);
+		}
+		return predicate;
+	}
+
+	/**
+	 * Compile a prefix condition on a column.
+	 * 
+	 * @param columnIndex the index of the column in database schema.
+	 * @param value       the prefix.
+	 * @return the predicate.
+	 */
+	RecordPredicate prefix(int columnIndex, String value) {
+		if (value.trim().length() == 0) {
+			return ANY;
+		}
+		if (columnIndex >= layout.getFieldsNumber()) {
+			return NONE;
+		}
+
+		FieldMatcher matcher = new FieldMatcher(layout, columnIndex, value);
+		return matcher.isUnmatchable() ? NONE : new FieldPredicate(matcher);
+	}
+
+	/**
+	 * Compile a range condition.
+	 * 
+	 * @param range range condition.
+	 * @return the predicate.
+	 * @throws IllegalArgumentException if the range condition can't be evaluated.
+	 */
+	RecordPredicate range(RangeCriterion range) {
+		RangePredicate predicate = new RangePredicate(schema, range);
+		return predicate.getMinKey() > predicate.getMaxKey() ? NONE : predicate;
+	}
+
+	/**
+	 * Compile an AND operation.
+	 * 
+	 * @param operands the operands of the AND operation.
+	 * @return the predicate.
+	 * @throws IllegalArgumentException if a range condition can't be evaluated.
+	 */
+	RecordPredicate and(List<SearchCondition> operands) {
+		List<FieldMatcher> fields = new ArrayList<FieldMatcher>();
+		List<RecordPredicate> others = new ArrayList<RecordPredicate>();
+		for (SearchCondition operand : operands) {
+			RecordPredicate predicate = operand.compile(this);
+			if (predicate == NONE) {
+				return NONE;
+			} else if (predicate instanceof FieldPredicate) {
+				fields.add(((FieldPredicate) predicate).matcher);
+			} else if (predicate instanceof AndPredicate) {
+				fields.addAll(((AndPredicate) predicate).getFields());
+				others.addAll(((AndPredicate) predicate).getOthers());
+			} else if (predicate != ANY) {
+				others.add(predicate);
+			}
+		}
+
+		if (fields.size() + others.size() == 0) {
+			return ANY;
+		} else if (fields.size() + others.size() == 1) {
+			return fields.isEmpty() ? others.get(0) : new FieldPredicate(fields.get(0));
+		}
+		return new AndPredicate(fields, others);
+	}
+
+	/**
+	 * Compile an OR operation.
+	 * 
+	 * @param operands the operands of the OR operation.
+	 * @return the predicate.
+	 * @throws IllegalArgumentException if a range condition can't be evaluated.
+	 */
+	RecordPredicate or(List<SearchCondition> operands) {
+		List<RecordPredicate> predicates = new ArrayList<RecordPredicate>();
+		for (SearchCondition operand : operands) {
+			RecordPredicate predicate = operand.compile(this);
+			if (predicate == ANY) {
+				return ANY;
+			} else if (predicate instanceof OrPredicate) {
+				predicates.addAll(((OrPredicate) predicate).getOperands());
+			} else if (predicate != NONE) {
+				predicates.add(predicate);
+			}
+		}
+
+		if (predicates.isEmpty()) {
+			return NONE;
+		} else if (predicates.size() == 1) {
+			return predicates.get(0);
+		}
+		return new OrPredicate(predicates);
+	}
+
+	/**
+	 * The predicate of a prefix condition.
+	 */
+	private static final class FieldPredicate implements RecordPredicate {
+		private final FieldMatcher matcher;
+
+		FieldPredicate(FieldMatcher matcher) {
+			this.matcher = matcher;
+		}
+
+		public boolean matches(Record record) {
+			return matcher.matches(record);
+		}
+	}
+
+	/**
+	 * The predicate of an AND operation; the field matchers are evaluated before
+	 * the other operands.
+	 */
+	private static final class AndPredicate implements RecordPredicate {
+		private final FieldMatcher[] fields;
+		private final RecordPredicate[] others;
+
+		AndPredicate(List<FieldMatcher> fields, List<RecordPredicate> others) {
+			this.fields = fields.toArray(new FieldMatcher[fields.size()]);
+			this.others = others.toArray(new RecordPredicate[others.size()]);
+		}
+
+		List<FieldMatcher> getFields() {
+			return Arrays.asList(fields);
+		}
+
+		List<RecordPredicate> getOthers() {
+			return Arrays.asList(others);
+		}
+
+		public boolean matches(Record record) {
+			for (int i = 0; i < fields.length; i++) {
+				if (!fields[i].matches(record)) {
+					return false;
+				}
+			}
+			for (int i = 0; i < others.length; i++) {
+				if (!others[i].matches(record)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The predicate of an OR operation.
+	 */
+	private static final class OrPredicate implements RecordPredicate {
+		private final RecordPredicate[] operands;
+
+		OrPredicate(List<RecordPredicate> operands) {
+			this.operands = operands.toArray(new RecordPredicate[operands.size()]);
+		}
+
+		List<RecordPredicate> getOperands() {
+			return Arrays.asList(operands);
+		}
+
+		public boolean matches(Record record) {
+			for (int i = 0; i < operands.length; i++) {
+				if (operands[i].matches(record)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
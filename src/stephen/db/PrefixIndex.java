@@ -0,0 +1,190 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import stephen.common.Messages;
+import stephen.db.exception.RecordNotFoundException;
+import stephen.db.file.Record;
+
+/**
+ * PrefixIndex object is a secondary index on one column of database schema. It
+ * keeps the pairs of trimmed column value and record number sorted by the value,
+ * so the records whose column value begins with a prefix are found in a range
+ * of the sorted pairs instead of traversing the whole data file.
+ * <p>
+ * The column value is read by <code>Record.getString()</code> and trimmed, the
+ * same as <code>RecordMatcher</code> compares it with the search criteria, so
+ * the index returns every record matched by a criterion on the column. The
+ * index may briefly return a record which no longer matches while the record is
+ * being changed; the caller has to check the returned records against the
+ * criteria.
+ * <p>
+ * The pairs are stored in a <code>ConcurrentSkipListSet</code>, so the index
+ * can be searched and changed by multiple threads at the same time without
+ * locking.
+ * 
+ * @see stephen.db.file.RecordMatcher
+ * @author Stephen Liu
+ * 
+ */
+class PrefixIndex implements SecondaryIndex, Indexable<String> {
+	private final int columnIndex;
+	private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<Entry>();
+
+	/**
+	 * Creates a PrefixIndex object.
+	 * 
+	 * @param columnIndex the index of the column in database schema.
+	 */
+	PrefixIndex(int columnIndex) {
+		this.columnIndex = columnIndex;
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#getColumnIndex()
+	 */
+	public int getColumnIndex() {
+		return columnIndex;
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#add(int, stephen.db.file.Record)
+	 */
+	public void add(int recNo, Record record) {
+		entries.add(new Entry(getValue(record), recNo));
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#remove(int, stephen.db.file.Record)
+	 */
+	public void remove(int recNo, Record record) {
+		entries.remove(new Entry(getValue(record), recNo));
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#update(int, stephen.db.file.Record,
+	 *      stephen.db.file.Record)
+	 */
+	public void update(int recNo, Record oldRecord, Record newRecord) {
+		String oldValue = getValue(oldRecord);
+		String newValue = getValue(newRecord);
+		if (!oldValue.equals(newValue)) {
+			entries.add(new Entry(newValue, recNo));
+			entries.remove(new Entry(oldValue, recNo));
+		}
+	}
+
+	/**
+	 * Get the numbers of the records whose column value begins with a prefix,
+	 * sorted by record number.
+	 * 
+	 * @param prefix the prefix of column value; it is trimmed before searching.
+	 * @return record numbers; empty if no records are found.
+	 */
+	List<Integer> find(String prefix) {
+		String from = prefix.trim();
+
+		// U+FFFF is greater than any character in the column values.
+		String to = from + '\uFFFF';
+
+		List<Integer> recNos = new ArrayList<Integer>();
+		for (Entry entry : entries.subSet(new Entry(from, Integer.MIN_VALUE), new Entry(to, Integer.MIN_VALUE))) {
+			recNos.add(entry.recNo);
+		}
+
+		Collections.sort(recNos);
+		return recNos;
+	}
+
+	/**
+	 * Count the records whose column value begins with a prefix. Counting stops
+	 * at a limit, so it is cheap for a prefix matched by many records.
+	 * 
+	 * @param prefix the prefix of column value; it is trimmed before counting.
+	 * @param limit  the maximum count.
+	 * @return the number of records; the limit if there are more records.
+	 */
+	int count(String prefix, int limit) {
+		String from = prefix.trim();
+		String to = from + '\uFFFF';
+
+		int count = 0;
+		Iterator<Entry> it = entries.subSet(new Entry(from, Integer.MIN_VALUE), new Entry(to, Integer.MIN_VALUE))
+				.iterator();
+		while (count < limit && it.hasNext()) {
+			it.next();
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Get the numbers of the records whose column value begins with the key.
+	 * 
+	 * @see stephen.db.Indexable#getIndex(java.lang.Object)
+	 */
+	public List<Integer> getIndex(String key) throws RecordNotFoundException {
+		List<Integer> recNos = find(key);
+		if (recNos.isEmpty()) {
+			String errMsg = Messages.getString("Data.noRecordFound", new Object[] { key }); //$NON-NLS-1$
+			throw new RecordNotFoundException(errMsg);
+		}
+
+		return recNos;
+	}
+
+	/**
+	 * Get the number of index entries.
+	 * 
+	 * @return number of index entries.
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Read the trimmed value of the indexed column from a record.
+	 * 
+	 * @param record record data.
+	 * @return column value.
+	 */
+	private String getValue(Record record) {
+		return record.getString(columnIndex).trim();
+	}
+
+	/**
+	 * One pair of column value and record number; the pairs are sorted by the
+	 * column value at first and then by the record number.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		private final String value;
+		private final int recNo;
+
+		private Entry(String value, int recNo) {
+			this.value = value;
+			this.recNo = recNo;
+		}
+
+		public int compareTo(Entry other) {
+			int result = value.compareTo(other.value);
+			if (result != 0) {
+				return result;
+			}
+
+			return Integer.compare(recNo, other.recNo);
+		}
+	}
+
+}
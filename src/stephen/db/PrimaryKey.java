@@ -7,8 +7,7 @@
 
 package stephen.db;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import stephen.db.file.Record;
 
@@ -25,13 +24,25 @@ import stephen.db.file.Record;
  * for the back-compatibility. This is because column 'room' is added into database schema(V2)and it
  * is part of primary key; Originally,the default value for 'room' in data file (such as,db-1x1.db) 
  * is empty.
+ * <p>
+ * The primary key values are stored in one compact byte array: the trimmed
+ * US-ASCII bytes of each value, separated by the byte 0x00 which never appears
+ * in a value read from data file. The hash code is calculated once when the
+ * primary key is created. A primary key built from a record copies the bytes
+ * from the record data directly without decoding them into strings; a byte
+ * not in US-ASCII charset is stored as 0xFF, which is the same as the
+ * character U+FFFD it is decoded into.
  * 
  * @author Stephen Liu
  * 
  */
 public class PrimaryKey {
 
-    private List<String> primarykeys = new ArrayList<String>();
+    private static final byte SEPARATOR = 0x00;
+    private static final byte NON_ASCII = (byte) 0xFF;
+
+    private final byte[] primarykeys;
+    private final int hash;
     private DBSchema schema;
 
     /**
@@ -45,11 +56,36 @@ public class PrimaryKey {
      *            match corresponding database schema.
      */
     public PrimaryKey(DBSchema schema, String... recordData) {
-	this.schema = schema;	
-	int[] seqNo = schema.getPrimaryKeySequenceNo();	
-	for (int seq : seqNo) {
-	    primarykeys.add(recordData[seq]);
+	this.schema = schema;
+	int[] seqNo = schema.getPrimaryKeySequenceNo();
+
+	String[] values = new String[seqNo.length];
+	int length = seqNo.length - 1;
+	for (int i = 0; i < seqNo.length; i++) {
+	    values[i] = (recordData[seqNo[i]] == null ? "" : recordData[seqNo[i]].trim());
+	    length += values[i].length();
+	}
+
+	primarykeys = new byte[length];
+	int offset = 0;
+	for (int i = 0; i < values.length; i++) {
+	    if (i > 0) {
+		primarykeys[offset++] = SEPARATOR;
+	    }
+	    for (int j = 0; j < values[i].length(); j++) {
+		char c = values[i].charAt(j);
+		if (c < 0x80) {
+		    primarykeys[offset++] = (byte) c;
+		} else if (c == '\uFFFD') {
+		    primarykeys[offset++] = NON_ASCII;
+		} else {
+		    // the same as the character is saved into data file.
+		    primarykeys[offset++] = '?';
+		}
+	    }
 	}
+
+	hash = Arrays.hashCode(primarykeys);
     }
 
     /**
@@ -63,9 +99,87 @@ public class PrimaryKey {
     public PrimaryKey(DBSchema schema, Record record) {
 	this.schema = schema;
 	int[] seqNo = schema.getPrimaryKeySequenceNo();
+
+	int maxLength = seqNo.length - 1;
 	for (int i : seqNo) {
-	    primarykeys.add(record.getString(i));
+	    maxLength += record.getFieldLength(i);
+	}
+
+	byte[] buffer = new byte[maxLength];
+	int offset = 0;
+	for (int i = 0; i < seqNo.length; i++) {
+	    if (i > 0) {
+		buffer[offset++] = SEPARATOR;
+	    }
+	    int start = offset;
+	    offset += record.getBytes(seqNo[i], buffer, offset);
+	    for (int j = start; j < offset; j++) {
+		if (buffer[j] < 0) {
+		    buffer[j] = NON_ASCII;
+		}
+	    }
 	}
+
+	primarykeys = (offset == buffer.length ? buffer : Arrays.copyOf(buffer, offset));
+	hash = Arrays.hashCode(primarykeys);
+    }
+
+    /**
+     * Create an primary key object from the bytes returned by
+     * <code>getBytes()</code>.
+     * 
+     * @param schema
+     *            the database schema that this primary key is bound to.
+     * @param primarykeys
+     *            the bytes of primary key values.
+     */
+    PrimaryKey(DBSchema schema, byte[] primarykeys) {
+	this.schema = schema;
+	this.primarykeys = primarykeys;
+	this.hash = Arrays.hashCode(primarykeys);
+    }
+
+    /**
+     * Get the bytes of primary key values; the returned array must not be
+     * changed.
+     * 
+     * @return the bytes of primary key values.
+     */
+    byte[] getBytes() {
+	return primarykeys;
+    }
+
+    /**
+     * Determine if every value of this primary key begins with the value of
+     * the same field in another primary key, that is, a record with this
+     * primary key matches the search criteria constructed from the other one.
+     * 
+     * @param prefix
+     *            the primary key whose values are prefixes.
+     * @return true if every value begins with the value in the other primary
+     *         key.
+     */
+    boolean startsWith(PrimaryKey prefix) {
+	byte[] other = prefix.primarykeys;
+	int i = 0;
+	int j = 0;
+	while (j < other.length) {
+	    if (other[j] == SEPARATOR) {
+		// skip the rest of the value in this primary key.
+		while (i < primarykeys.length && primarykeys[i] != SEPARATOR) {
+		    i++;
+		}
+		if (i == primarykeys.length) {
+		    return false;
+		}
+	    } else if (i == primarykeys.length || primarykeys[i] != other[j]) {
+		return false;
+	    }
+	    i++;
+	    j++;
+	}
+
+	return true;
     }
 
     /**
@@ -77,9 +191,17 @@ public class PrimaryKey {
 	String[] columns = new String[schema.getColumnNumber()];
 
 	int index = 0;
+	int start = 0;
 	int[] seqNo = schema.getPrimaryKeySequenceNo();
-	for (int i : seqNo) {
-	    columns[i] = primarykeys.get(index++);
+	for (int i = 0; i <= primarykeys.length; i++) {
+	    if (i == primarykeys.length || primarykeys[i] == SEPARATOR) {
+		StringBuilder value = new StringBuilder(i - start);
+		for (int j = start; j < i; j++) {
+		    value.append(primarykeys[j] == NON_ASCII ? '\uFFFD' : (char) primarykeys[j]);
+		}
+		columns[seqNo[index++]] = value.toString();
+		start = i + 1;
+	    }
 	}
 
 	return constructSearchCriteriaByPrimaryKeyFields(schema, columns);
@@ -155,27 +277,17 @@ public class PrimaryKey {
 
 	PrimaryKey other = (PrimaryKey) obj;
 
-	for (int i = 0; i < primarykeys.size(); i++) {
-	    if (!primarykeys.get(i).equals(other.primarykeys.get(i))) {
-		return false;
-	    }
-	}
-
-	return true;
+	return hash == other.hash && Arrays.equals(primarykeys, other.primarykeys);
     }
 
     /*
-     * Calculate the hash code based on each field value in primary key.
+     * The hash code is calculated from the bytes of all field values when the
+     * primary key is created.
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-	final int PRIME = 31;
-	int result = 1;
-	for (int i = 0; i < primarykeys.size(); i++) {
-	    result = PRIME * result + primarykeys.get(i).hashCode();
-	}
-	return result;
+	return hash;
     }
 
 }
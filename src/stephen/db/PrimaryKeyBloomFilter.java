@@ -0,0 +1,130 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * PrimaryKeyBloomFilter object is a Bloom filter over primary keys. It tells
+ * a primary key has never been put into the filter without looking into the
+ * primary key index; a primary key which has been put into the filter is
+ * always reported as possibly contained, and a primary key which hasn't may
+ * also be reported so at a low false positive rate.
+ * <p>
+ * The filter has <code>Constant.BLOOM_FILTER_BITS_PER_KEY</code> bits per
+ * expected primary key. Each primary key sets k bits chosen by double hashing
+ * of two hash codes of its bytes, where k is the number of bits per key
+ * multiplied by ln2. Removing a primary key isn't supported, so the filter is
+ * rebuilt after many primary keys have been removed from the index.
+ * <p>
+ * The bits are set atomically, so the filter can be read and changed by
+ * multiple threads at the same time without locking.
+ * 
+ * @see stephen.db.PrimaryKey
+ * @author Stephen Liu
+ * 
+ */
+class PrimaryKeyBloomFilter {
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+	private final int expectedKeys;
+
+	/**
+	 * Creates a PrimaryKeyBloomFilter object.
+	 * 
+	 * @param expectedKeys the number of primary keys expected to be put.
+	 * @param bitsPerKey   the number of bits per expected primary key.
+	 */
+	PrimaryKeyBloomFilter(int expectedKeys, int bitsPerKey) {
+		this.expectedKeys = Math.max(expectedKeys, 64);
+		int words = (int) Math.min(((long) this.expectedKeys * bitsPerKey + 63) / 64, Integer.MAX_VALUE - 8);
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = (long) words * 64;
+		this.hashCount = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+	}
+
+	/**
+	 * Get the number of primary keys the filter is sized for.
+	 * 
+	 * @return the number of expected primary keys.
+	 */
+	int getExpectedKeys() {
+		return expectedKeys;
+	}
+
+	/**
+	 * Put a primary key into the filter.
+	 * 
+	 * @param pk primary key.
+	 */
+	void put(PrimaryKey pk) {
+		long hash1 = hash1(pk);
+		long hash2 = hash2(pk);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = index(hash1 + i * hash2);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+
+			long value = bits.get(word);
+			while ((value & mask) == 0 && !bits.compareAndSet(word, value, value | mask)) {
+				value = bits.get(word);
+			}
+		}
+	}
+
+	/**
+	 * Determine if a primary key might have been put into the filter.
+	 * 
+	 * @param pk primary key.
+	 * @return false if the primary key has never been put into the filter; true
+	 *         if it might have been.
+	 */
+	boolean mightContain(PrimaryKey pk) {
+		long hash1 = hash1(pk);
+		long hash2 = hash2(pk);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = index(hash1 + i * hash2);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private long index(long hash) {
+		return (hash & Long.MAX_VALUE) % bitCount;
+	}
+
+	/*
+	 * The hash code of the primary key with its bits mixed.
+	 */
+	private static long hash1(PrimaryKey pk) {
+		long h = pk.hashCode();
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/*
+	 * FNV-1a hash of the primary key bytes.
+	 */
+	private static long hash2(PrimaryKey pk) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : pk.getBytes()) {
+			h ^= (b & 0xFF);
+			h *= 0x100000001b3L;
+		}
+		return h | 1;
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import stephen.common.Messages;
+
+/**
+ * PrimaryKeyIndexFile object saves a snapshot of the primary key index into an
+ * index file, so the primary key index can be loaded from the index file
+ * instead of being built by traversing all records in the data file.
+ * <p>
+ * The snapshot is only valid while no primary key in the data file has been
+ * changed since it was saved: before a record is created or deleted, the index
+ * file is removed by <code>invalidate()</code>, and a new snapshot will be saved
+ * later. A snapshot is also rejected when the number of records in the data file
+ * or the checksum of the primary keys in the data file doesn't match the one
+ * in the snapshot, or when the CRC32 checksum of the snapshot is wrong. The
+ * checksum of the primary keys is kept by <code>PhysicalFile</code> and
+ * changes with every record created or deleted, so a snapshot is rejected even
+ * if the data file was changed by another program without removing it.
+ * <p>
+ * A new snapshot is written into a temporary file which then replaces the index
+ * file, so a crash during saving never leaves a partial index file.
+ * <p>
+ * Format of the index file:<br>
+ * magic number(4 bytes) + number of records in data file(4 bytes) + checksum
+ * of the primary keys in data file(8 bytes) + number of index entries(4
+ * bytes) + index entries + CRC32 checksum of the previous parts(8 bytes).<br>
+ * Each index entry: record number(4 bytes) + length of primary key bytes(2
+ * bytes) + primary key bytes.
+ * 
+ * @author Stephen Liu
+ * 
+ */
+class PrimaryKeyIndexFile {
+	private static Logger logger = Logger.getLogger(PrimaryKeyIndexFile.class.getName());
+
+	private static final int MAGIC = 0x504B4933;
+
+	private final File file;
+	private final DBSchema schema;
+
+	// the index file may exist and has to be removed before the primary keys
+	// are changed.
+	private boolean isExisting;
+
+	/**
+	 * Creates a PrimaryKeyIndexFile object.
+	 * 
+	 * @param filename the system-dependent index file name.
+	 * @param schema   database schema which defines the primary key.
+	 */
+	PrimaryKeyIndexFile(String filename, DBSchema schema) {
+		this.file = new File(filename);
+		this.schema = schema;
+		this.isExisting = file.exists();
+	}
+
+	/**
+	 * Load the snapshot of the primary key index.
+	 * 
+	 * @param recordCount the number of records in the data file, including
+	 *                    deleted records.
+	 * @param keyChecksum the checksum of the primary keys in the data file.
+	 * @return the mappings from primary key to record number; null if the index
+	 *         file doesn't exist or is invalid.
+	 */
+	synchronized Map<PrimaryKey, Integer> load(int recordCount, long keyChecksum) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		CRC32 crc = new CRC32();
+
+		try (DataInputStream input = new DataInputStream(
+				new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+			if (input.readInt() != MAGIC || input.readInt() != recordCount || input.readLong() != keyChecksum) {
+				logger.warning(Messages.getString("PrimaryKeyIndexFile.invalid", new Object[] { file })); //$NON-NLS-1$
+				return null;
+			}
+
+			int count = input.readInt();
+			Map<PrimaryKey, Integer> indice = new HashMap<PrimaryKey, Integer>();
+			for (int i = 0; i < count; i++) {
+				int recNo = input.readInt();
+
+				byte[] primarykeys = new byte[input.readUnsignedShort()];
+				input.readFully(primarykeys);
+
+				if (recNo < 0 || recNo >= recordCount) {
+					logger.warning(Messages.getString("PrimaryKeyIndexFile.invalid", new Object[] { file })); //$NON-NLS-1$
+					return null;
+				}
+				indice.put(new PrimaryKey(schema, primarykeys), recNo);
+			}
+
+			long checksum = crc.getValue();
+			if (input.readLong() != checksum) {
+				logger.warning(Messages.getString("PrimaryKeyIndexFile.invalid", new Object[] { file })); //$NON-NLS-1$
+				return null;
+			}
+
+			logger.info(Messages.getString("PrimaryKeyIndexFile.loaded", new Object[] { count, file })); //$NON-NLS-1$
+
+			return indice;
+
+		} catch (IOException e) {
+			logger.warning(Messages.getString("PrimaryKeyIndexFile.failedLoad", //$NON-NLS-1$
+					new Object[] { file, e.getMessage() }));
+			return null;
+		}
+	}
+
+	/**
+	 * Save a snapshot of the primary key index into the index file.
+	 * 
+	 * @param indice      the mappings from primary key to record number.
+	 * @param recordCount the number of records in the data file, including
+	 *                    deleted records.
+	 * @param keyChecksum the checksum of the primary keys in the data file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	synchronized void save(Map<PrimaryKey, Integer> indice, int recordCount, long keyChecksum) throws IOException {
+		File tmpFile = new File(file.getPath() + ".tmp");
+
+		FileOutputStream fos = new FileOutputStream(tmpFile);
+		CheckedOutputStream cos = new CheckedOutputStream(new BufferedOutputStream(fos), new CRC32());
+		try (DataOutputStream output = new DataOutputStream(cos)) {
+			output.writeInt(MAGIC);
+			output.writeInt(recordCount);
+			output.writeLong(keyChecksum);
+			output.writeInt(indice.size());
+
+			for (Map.Entry<PrimaryKey, Integer> entry : indice.entrySet()) {
+				output.writeInt(entry.getValue());
+
+				byte[] primarykeys = entry.getKey().getBytes();
+				output.writeShort(primarykeys.length);
+				output.write(primarykeys);
+			}
+
+			output.writeLong(cos.getChecksum().getValue());
+			output.flush();
+
+			fos.getFD().sync();
+		}
+
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		isExisting = true;
+	}
+
+	/**
+	 * Remove the index file before any primary key in the data file is changed.
+	 * 
+	 * @throws IOException if the index file can't be removed.
+	 */
+	synchronized void invalidate() throws IOException {
+		if (isExisting) {
+			Files.deleteIfExists(file.toPath());
+			isExisting = false;
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class describes a range condition on a column whose values can be
+ * compared as numbers: 'size', 'rate'(such as "$150.00") and
+ * 'date'(yyyy/MM/dd). The bounds are written in the same format as the column
+ * values; the currency symbol of a rate bound is optional.
+ * <p>
+ * A record matches the condition if its column value is between the lower
+ * bound and the upper bound; a null bound means the range is not bounded on
+ * that side. A record whose column value can't be parsed never matches.
+ * <p>
+ * For example, the rooms under $120:<br>
+ * <code>
+ *   new RangeCriterion("rate", null, false, "120", false);
+ * </code>
+ * 
+ * @see stephen.db.RangeSearchable
+ * @author Stephen Liu
+ * 
+ */
+public class RangeCriterion implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String columnName;
+	private final String lowerBound;
+	private final boolean lowerInclusive;
+	private final String upperBound;
+	private final boolean upperInclusive;
+
+	/**
+	 * Create a range condition.
+	 * 
+	 * @param columnName     column name.
+	 * @param lowerBound     the lower bound; null if no lower bound.
+	 * @param lowerInclusive the lower bound is included in the range or not.
+	 * @param upperBound     the upper bound; null if no upper bound.
+	 * @param upperInclusive the upper bound is included in the range or not.
+	 */
+	public RangeCriterion(String columnName, String lowerBound, boolean lowerInclusive, String upperBound,
+			boolean upperInclusive) {
+		this.columnName = columnName;
+		this.lowerBound = lowerBound;
+		this.lowerInclusive = lowerInclusive;
+		this.upperBound = upperBound;
+		this.upperInclusive = upperInclusive;
+	}
+
+	/**
+	 * Get the column name.
+	 * 
+	 * @return column name.
+	 */
+	public String getColumnName() {
+		return columnName;
+	}
+
+	/**
+	 * Get the lower bound.
+	 * 
+	 * @return the lower bound; null if no lower bound.
+	 */
+	public String getLowerBound() {
+		return lowerBound;
+	}
+
+	/**
+	 * Determine if the lower bound is included in the range.
+	 * 
+	 * @return true if the lower bound is included.
+	 */
+	public boolean isLowerInclusive() {
+		return lowerInclusive;
+	}
+
+	/**
+	 * Get the upper bound.
+	 * 
+	 * @return the upper bound; null if no upper bound.
+	 */
+	public String getUpperBound() {
+		return upperBound;
+	}
+
+	/**
+	 * Determine if the upper bound is included in the range.
+	 * 
+	 * @return true if the upper bound is included.
+	 */
+	public boolean isUpperInclusive() {
+		return upperInclusive;
+	}
+
+	/**
+	 * Two range conditions are equal if they have the same column, bounds and
+	 * inclusiveness of the bounds.
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object obj) {
+		if (!(obj instanceof RangeCriterion)) {
+			return false;
+		}
+
+		RangeCriterion other = (RangeCriterion) obj;
+		return Objects.equals(columnName, other.columnName) && Objects.equals(lowerBound, other.lowerBound)
+				&& lowerInclusive == other.lowerInclusive && Objects.equals(upperBound, other.upperBound)
+				&& upperInclusive == other.upperInclusive;
+	}
+
+	/**
+	 * The hash code is calculated from the column, bounds and inclusiveness of
+	 * the bounds.
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		return Objects.hash(columnName, lowerBound, lowerInclusive, upperBound, upperInclusive);
+	}
+
+	/**
+	 * Format the range condition to a string.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuffer buffer = new StringBuffer("(");
+		if (lowerBound != null) {
+			buffer.append(lowerBound).append(lowerInclusive ? "<=" : "<");
+		}
+		buffer.append(columnName);
+		if (upperBound != null) {
+			buffer.append(upperInclusive ? "<=" : "<").append(upperBound);
+		}
+		return buffer.append(")").toString();
+	}
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import stephen.db.file.Record;
+
+/**
+ * RangeIndex object is a secondary index on a column whose values are compared
+ * as numbers, such as 'rate' and 'date'. The column values are parsed into keys
+ * by <code>RangeKeyType</code>, and the pairs of key and record number are kept
+ * sorted by the key, so the records in a range are found in a range of the
+ * sorted pairs. A record whose column value can't be parsed is not indexed,
+ * since it never matches a range condition.
+ * <p>
+ * The pairs are stored in a <code>ConcurrentSkipListSet</code>, so the index
+ * can be searched and changed by multiple threads at the same time without
+ * locking.
+ * 
+ * @see stephen.db.RangePredicate
+ * @author Stephen Liu
+ * 
+ */
+class RangeIndex implements SecondaryIndex {
+	private final int columnIndex;
+	private final RangeKeyType keyType;
+	private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<Entry>();
+
+	/**
+	 * Creates a RangeIndex object.
+	 * 
+	 * @param columnIndex the index of the column in database schema.
+	 * @param keyType     the type of the column values.
+	 */
+	RangeIndex(int columnIndex, RangeKeyType keyType) {
+		this.columnIndex = columnIndex;
+		this.keyType = keyType;
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#getColumnIndex()
+	 */
+	public int getColumnIndex() {
+		return columnIndex;
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#add(int, stephen.db.file.Record)
+	 */
+	public void add(int recNo, Record record) {
+		Long key = getKey(record);
+		if (key != null) {
+			entries.add(new Entry(key, recNo));
+		}
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#remove(int, stephen.db.file.Record)
+	 */
+	public void remove(int recNo, Record record) {
+		Long key = getKey(record);
+		if (key != null) {
+			entries.remove(new Entry(key, recNo));
+		}
+	}
+
+	/**
+	 * @see stephen.db.SecondaryIndex#update(int, stephen.db.file.Record,
+	 *      stephen.db.file.Record)
+	 */
+	public void update(int recNo, Record oldRecord, Record newRecord) {
+		Long oldKey = getKey(oldRecord);
+		Long newKey = getKey(newRecord);
+		if (oldKey == null ? newKey != null : !oldKey.equals(newKey)) {
+			add(recNo, newRecord);
+			remove(recNo, oldRecord);
+		}
+	}
+
+	/**
+	 * Get the records whose column value is in the range of a predicate.
+	 * 
+	 * @param predicate range predicate on the indexed column.
+	 * @return a new bitmap of the record numbers.
+	 */
+	RecordBitmap find(RangePredicate predicate) {
+		RecordBitmap bitmap = new RecordBitmap();
+		if (predicate.getMinKey() > predicate.getMaxKey()) {
+			return bitmap;
+		}
+
+		Entry from = new Entry(predicate.getMinKey(), Integer.MIN_VALUE);
+		Entry to = new Entry(predicate.getMaxKey(), Integer.MAX_VALUE);
+		for (Entry entry : entries.subSet(from, true, to, true)) {
+			bitmap.add(entry.recNo);
+		}
+
+		return bitmap;
+	}
+
+	/**
+	 * Count the records whose column value is in the range of a predicate.
+	 * Counting stops at a limit, so it is cheap for a wide range.
+	 * 
+	 * @param predicate range predicate on the indexed column.
+	 * @param limit     the maximum count.
+	 * @return the number of records; the limit if there are more records.
+	 */
+	int count(RangePredicate predicate, int limit) {
+		if (predicate.getMinKey() > predicate.getMaxKey()) {
+			return 0;
+		}
+
+		int count = 0;
+		Entry from = new Entry(predicate.getMinKey(), Integer.MIN_VALUE);
+		Entry to = new Entry(predicate.getMaxKey(), Integer.MAX_VALUE);
+		Iterator<Entry> it = entries.subSet(from, true, to, true).iterator();
+		while (count < limit && it.hasNext()) {
+			it.next();
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Get the pairs of key and record number in the order of the keys. The
+	 * iterator is weakly consistent, so the index can be changed while it is
+	 * iterated.
+	 * 
+	 * @param descending iterate from the greatest key or not.
+	 * @return the iterator of the pairs.
+	 */
+	Iterator<Entry> iterator(boolean descending) {
+		return descending ? entries.descendingIterator() : entries.iterator();
+	}
+
+	/**
+	 * Parse the indexed column value of a record into a key.
+	 * 
+	 * @param record record data.
+	 * @return the key; null if the value can't be parsed.
+	 */
+	private Long getKey(Record record) {
+		try {
+			return keyType.parse(record.getString(columnIndex));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * One pair of key and record number; the pairs are sorted by the key at
+	 * first and then by the record number.
+	 */
+	static class Entry implements Comparable<Entry> {
+		private final long key;
+		private final int recNo;
+
+		private Entry(long key, int recNo) {
+			this.key = key;
+			this.recNo = recNo;
+		}
+
+		long getKey() {
+			return key;
+		}
+
+		int getRecNo() {
+			return recNo;
+		}
+
+		public int compareTo(Entry other) {
+			int result = Long.compare(key, other.key);
+			if (result != 0) {
+				return result;
+			}
+
+			return Integer.compare(recNo, other.recNo);
+		}
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+import stephen.common.ByteManipulator;
+import stephen.common.Constant;
+import stephen.db.file.FieldParser;
+
+/**
+ * The types of the column values which are compared as numbers in a range
+ * condition. Each type parses a trimmed column value into a long key whose
+ * order is the same as the order of the values.
+ * 
+ * @see stephen.db.RangeCriterion
+ * @author Stephen Liu
+ * 
+ */
+enum RangeKeyType implements FieldParser {
+	/**
+	 * Integer value, such as 'size'; the key is the value.
+	 */
+	NUMBER {
+		long parseKey(String value) {
+			return Long.parseLong(value);
+		}
+
+		long parseKey(byte[] value, int offset, int length) {
+			if (length == 0 || length > MAX_DIGITS) {
+				return UNPARSED;
+			}
+
+			long key = 0;
+			for (int i = offset; i < offset + length; i++) {
+				int digit = value[i] - '0';
+				if (digit < 0 || digit > 9) {
+					return UNPARSED;
+				}
+				key = key * 10 + digit;
+			}
+			return key;
+		}
+	},
+
+	/**
+	 * Currency value, such as 'rate'("$150.00"); the key is the amount in cents.
+	 * The currency symbol and grouping separators are ignored.
+	 */
+	CURRENCY {
+		long parseKey(String value) {
+			int start = 0;
+			while (start < value.length() && !Character.isDigit(value.charAt(start))
+					&& value.charAt(start) != '.' && value.charAt(start) != '-') {
+				start++;
+			}
+
+			BigDecimal amount = new BigDecimal(value.substring(start).replace(",", ""));
+			return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+		}
+
+		// only the amounts with at most two decimal places, such as "$150.00".
+		long parseKey(byte[] value, int offset, int length) {
+			int end = offset + length;
+			int i = offset;
+			while (i < end && value[i] >= 0 && !isDigit(value[i]) && value[i] != '.' && value[i] != '-') {
+				i++;
+			}
+
+			int start = i;
+			long cents = 0;
+			while (i < end && isDigit(value[i])) {
+				cents = cents * 10 + (value[i++] - '0');
+			}
+			if (i == start || i - start > MAX_DIGITS - 2) {
+				return UNPARSED;
+			}
+
+			int decimals = 0;
+			if (i < end && value[i] == '.') {
+				i++;
+				while (i < end && isDigit(value[i]) && decimals < 2) {
+					cents = cents * 10 + (value[i++] - '0');
+					decimals++;
+				}
+				if (decimals == 0) {
+					return UNPARSED;
+				}
+			}
+			if (i != end) {
+				return UNPARSED;
+			}
+
+			for (; decimals < 2; decimals++) {
+				cents *= 10;
+			}
+			return cents;
+		}
+	},
+
+	/**
+	 * Date value in the format <code>Constant.DATE_PATTERN</code>, such as
+	 * 'date'; the key is the number of days since 1970/01/01.
+	 */
+	DATE {
+		long parseKey(String value) {
+			return LocalDate.parse(value, DATE_FORMATTER).toEpochDay();
+		}
+
+		// only the valid dates in the format yyyy/MM/dd.
+		long parseKey(byte[] value, int offset, int length) {
+			if (length != 10 || value[offset + 4] != '/' || value[offset + 7] != '/') {
+				return UNPARSED;
+			}
+
+			int year = parseDigits(value, offset, offset + 4);
+			int month = parseDigits(value, offset + 5, offset + 7);
+			int day = parseDigits(value, offset + 8, offset + 10);
+			if (year < 1 || month < 1 || month > 12 || day < 1
+					|| day > Month.of(month).length(Year.isLeap(year))) {
+				return UNPARSED;
+			}
+
+			return LocalDate.of(year, month, day).toEpochDay();
+		}
+	};
+
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(Constant.DATE_PATTERN);
+
+	/**
+	 * The result of <code>parseKey(byte[], int, int)</code> when a value isn't
+	 * in the format which can be parsed from the bytes directly.
+	 */
+	private static final long UNPARSED = Long.MIN_VALUE;
+
+	// the max number of digits which are parsed from the bytes directly.
+	private static final int MAX_DIGITS = 18;
+
+	/**
+	 * Parse a column value into a key.
+	 * 
+	 * @param value column value.
+	 * @return the key.
+	 * @throws IllegalArgumentException if the value can't be parsed.
+	 */
+	long parse(String value) {
+		try {
+			return parseKey(value.trim());
+		} catch (IllegalArgumentException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			IllegalArgumentException iae = new IllegalArgumentException(e.getMessage());
+			iae.initCause(e);
+			throw iae;
+		}
+	}
+
+	/**
+	 * Parse a trimmed column value stored as bytes into a key, such as the bytes
+	 * given by <code>Record.parseField()</code>. The values in the usual format
+	 * of the type are parsed from the bytes directly without creating a string;
+	 * the other values are decoded and parsed in the same way as
+	 * <code>parse(String)</code>, so both methods always return the same key.
+	 * 
+	 * @param value  byte array holding the column value.
+	 * @param offset the start position of the column value.
+	 * @param length the number of bytes of the column value.
+	 * @return the key.
+	 * @throws IllegalArgumentException if the value can't be parsed.
+	 * @see stephen.db.file.FieldParser#parse(byte[], int, int)
+	 */
+	public long parse(byte[] value, int offset, int length) {
+		long key = parseKey(value, offset, length);
+		if (key != UNPARSED) {
+			return key;
+		}
+
+		return parse(ByteManipulator.bytesToString(value, offset, length, Constant.CHARSET));
+	}
+
+	abstract long parseKey(String value);
+
+	/**
+	 * Parse the bytes of a column value in the usual format of the type.
+	 * 
+	 * @param value  byte array holding the column value.
+	 * @param offset the start position of the column value.
+	 * @param length the number of bytes of the column value.
+	 * @return the key; <code>UNPARSED</code> if the value isn't in the usual
+	 *         format.
+	 */
+	abstract long parseKey(byte[] value, int offset, int length);
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static int parseDigits(byte[] value, int from, int to) {
+		int number = 0;
+		for (int i = from; i < to; i++) {
+			if (!isDigit(value[i])) {
+				return -1;
+			}
+			number = number * 10 + (value[i] - '0');
+		}
+		return number;
+	}
+
+	/**
+	 * Get the type of the values of a column.
+	 * 
+	 * @param columnName column name.
+	 * @return the type; null if the column can't be compared as numbers.
+	 */
+	static RangeKeyType forColumn(String columnName) {
+		if (DBSchema.SIZE.equals(columnName)) {
+			return NUMBER;
+		} else if (DBSchema.RATE.equals(columnName)) {
+			return CURRENCY;
+		} else if (DBSchema.DATE.equals(columnName)) {
+			return DATE;
+		}
+
+		return null;
+	}
+}
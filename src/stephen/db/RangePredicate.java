@@ -0,0 +1,166 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import stephen.common.Messages;
+import stephen.db.file.Record;
+
+/**
+ * RangePredicate object evaluates a <code>RangeCriterion</code> against the
+ * records. The bounds are parsed once into keys of the column type, and an
+ * exclusive bound is converted into the next key, so a column value matches if
+ * its key is between the minimum key and the maximum key inclusively.
+ * 
+ * @see stephen.db.RangeCriterion
+ * @see stephen.db.RangeKeyType
+ * @author Stephen Liu
+ * 
+ */
+class RangePredicate implements BitmapIndex.ValueFilter, RecordPredicate {
+	private final RangeCriterion criterion;
+	private final int columnIndex;
+	private final RangeKeyType keyType;
+	private final long minKey;
+	private final long maxKey;
+
+	/**
+	 * Creates a RangePredicate object.
+	 * 
+	 * @param schema    database schema.
+	 * @param criterion range condition.
+	 * @throws IllegalArgumentException if the column doesn't exist or can't be
+	 *                                  compared as numbers, or a bound can't be
+	 *                                  parsed.
+	 */
+	RangePredicate(DBSchema schema, RangeCriterion criterion) {
+		this.criterion = criterion;
+		this.columnIndex = schema.getColumnIndex(criterion.getColumnName());
+		this.keyType = RangeKeyType.forColumn(criterion.getColumnName());
+
+		if (columnIndex < 0 || keyType == null) {
+			String errMsg = Messages.getString("RangePredicate.unsupportedColumn", //$NON-NLS-1$
+					new Object[] { criterion.getColumnName() });
+			throw new IllegalArgumentException(errMsg);
+		}
+
+		long min = Long.MIN_VALUE;
+		if (criterion.getLowerBound() != null) {
+			min = parseBound(criterion.getLowerBound());
+			if (!criterion.isLowerInclusive()) {
+				min = (min == Long.MAX_VALUE ? min : min + 1);
+			}
+		}
+
+		long max = Long.MAX_VALUE;
+		if (criterion.getUpperBound() != null) {
+			max = parseBound(criterion.getUpperBound());
+			if (!criterion.isUpperInclusive()) {
+				max = (max == Long.MIN_VALUE ? max : max - 1);
+			}
+		}
+
+		this.minKey = min;
+		this.maxKey = max;
+	}
+
+	/**
+	 * Get the index of the column in database schema.
+	 * 
+	 * @return column index.
+	 */
+	int getColumnIndex() {
+		return columnIndex;
+	}
+
+	/**
+	 * Get the type of the column values.
+	 * 
+	 * @return the type of the column values.
+	 */
+	RangeKeyType getKeyType() {
+		return keyType;
+	}
+
+	/**
+	 * Get the minimum key in the range.
+	 * 
+	 * @return the minimum key.
+	 */
+	long getMinKey() {
+		return minKey;
+	}
+
+	/**
+	 * Get the maximum key in the range.
+	 * 
+	 * @return the maximum key.
+	 */
+	long getMaxKey() {
+		return maxKey;
+	}
+
+	/**
+	 * Determine if a key is in the range.
+	 * 
+	 * @param key the key of a column value.
+	 * @return true if the key is in the range.
+	 */
+	boolean accept(long key) {
+		return key >= minKey && key <= maxKey;
+	}
+
+	/**
+	 * Determine if a column value is in the range.
+	 * 
+	 * @see stephen.db.BitmapIndex.ValueFilter#accept(java.lang.String)
+	 */
+	public boolean accept(String value) {
+		try {
+			return accept(keyType.parse(value));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Determine if a record matches the range condition. The column value is
+	 * parsed from the record data in place, without copying the field bytes or
+	 * creating a string when it is in the usual format of the column type.
+	 * 
+	 * @see stephen.db.RecordPredicate#matches(stephen.db.file.Record)
+	 */
+	public boolean matches(Record record) {
+		try {
+			return accept(record.parseField(columnIndex, keyType));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Format the range condition to a string.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return criterion.toString();
+	}
+
+	private long parseBound(String bound) {
+		try {
+			return keyType.parse(bound);
+		} catch (IllegalArgumentException e) {
+			String errMsg = Messages.getString("RangePredicate.invalidBound", //$NON-NLS-1$
+					new Object[] { bound, criterion.getColumnName() });
+			IllegalArgumentException iae = new IllegalArgumentException(errMsg);
+			iae.initCause(e);
+			throw iae;
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import stephen.db.exception.RecordNotFoundException;
+
+/**
+ * The interface of the database which can search records by range conditions
+ * in addition to the prefix criteria of <code>DBMain.find()</code>.
+ * 
+ * @see stephen.db.RangeCriterion
+ * @author Stephen Liu
+ * 
+ */
+public interface RangeSearchable {
+    /**
+     * Returns an array of record numbers that match the specified criteria and
+     * range conditions. The criteria are matched in the same way as
+     * <code>DBMain.find()</code>; the records must also match all range
+     * conditions.
+     * 
+     * @param criteria
+     *            search criteria; null means no criteria.
+     * @param ranges
+     *            range conditions; null means no range conditions.
+     * @return record numbers of the matched records.
+     * @throws RecordNotFoundException
+     *             throws when no records match.
+     */
+    public int[] find(String[] criteria, RangeCriterion[] ranges) throws RecordNotFoundException;
+}
@@ -0,0 +1,559 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RecordBitmap object is a compressed set of record numbers, organized like a
+ * roaring bitmap: the record numbers are grouped by their higher 16 bits, and
+ * the lower 16 bits of each group are kept in a container. A container with at
+ * most 4096 values is a sorted array of the values; a larger container is a
+ * bitmap of 65536 bits(8K bytes). So a sparse set takes 2 bytes per record and a
+ * dense set takes 1 bit per record.
+ * <p>
+ * <code>and()</code>, <code>or()</code> and <code>andNot()</code> work on the
+ * containers with the same higher 16 bits and create a new RecordBitmap
+ * object; the operands are not changed.
+ * <p>
+ * RecordBitmap object is not thread-safe.
+ * 
+ * @see stephen.db.BitmapIndex
+ * @author Stephen Liu
+ * 
+ */
+class RecordBitmap {
+	private static final int ARRAY_MAX_SIZE = 4096;
+	private static final int BITMAP_WORDS = 1024;
+
+	// approximate memory taken by an object or an array header, and by a
+	// reference.
+	private static final int OBJECT_OVERHEAD = 16;
+	private static final int REFERENCE_SIZE = 8;
+
+	// sorted higher 16 bits of the record numbers in each container.
+	private char[] keys = new char[4];
+	private Container[] containers = new Container[4];
+	private int size;
+
+	/**
+	 * Add a record number into the set.
+	 * 
+	 * @param recNo record number, which is not negative.
+	 */
+	void add(int recNo) {
+		char key = (char) (recNo >>> 16);
+		int i = Arrays.binarySearch(keys, 0, size, key);
+		if (i >= 0) {
+			containers[i] = containers[i].add((char) recNo);
+			return;
+		}
+
+		ArrayContainer container = new ArrayContainer(new char[4], 0);
+		insert(-i - 1, key, container.add((char) recNo));
+	}
+
+	/**
+	 * Remove a record number from the set.
+	 * 
+	 * @param recNo record number.
+	 */
+	void remove(int recNo) {
+		int i = Arrays.binarySearch(keys, 0, size, (char) (recNo >>> 16));
+		if (i < 0) {
+			return;
+		}
+
+		Container container = containers[i].remove((char) recNo);
+		if (container.cardinality() == 0) {
+			System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+			System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+			containers[--size] = null;
+		} else {
+			containers[i] = container;
+		}
+	}
+
+	/**
+	 * Determine if a record number is in the set.
+	 * 
+	 * @param recNo record number.
+	 * @return true if the set contains the record number.
+	 */
+	boolean contains(int recNo) {
+		int i = Arrays.binarySearch(keys, 0, size, (char) (recNo >>> 16));
+		return i >= 0 && containers[i].contains((char) recNo);
+	}
+
+	/**
+	 * Get the number of record numbers in the set.
+	 * 
+	 * @return cardinality of the set.
+	 */
+	int cardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < size; i++) {
+			cardinality += containers[i].cardinality();
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Estimate the memory taken by the set, from the lengths of the arrays
+	 * which hold the containers and their values.
+	 * 
+	 * @return approximate size in bytes.
+	 */
+	long getSizeInBytes() {
+		long bytes = OBJECT_OVERHEAD + keys.length * 2L + containers.length * REFERENCE_SIZE;
+		for (int i = 0; i < size; i++) {
+			bytes += containers[i].getSizeInBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Create the intersection of this set and another one.
+	 * 
+	 * @param other the other set.
+	 * @return a new set.
+	 */
+	RecordBitmap and(RecordBitmap other) {
+		RecordBitmap result = new RecordBitmap();
+
+		int i = 0, j = 0;
+		while (i < size && j < other.size) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				result.append(keys[i], containers[i].and(other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Create the union of this set and another one.
+	 * 
+	 * @param other the other set.
+	 * @return a new set.
+	 */
+	RecordBitmap or(RecordBitmap other) {
+		RecordBitmap result = new RecordBitmap();
+
+		int i = 0, j = 0;
+		while (i < size || j < other.size) {
+			if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+				result.append(keys[i], containers[i].copy());
+				i++;
+			} else if (i == size || keys[i] > other.keys[j]) {
+				result.append(other.keys[j], other.containers[j].copy());
+				j++;
+			} else {
+				result.append(keys[i], containers[i].or(other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Create the set of the record numbers which are in this set but not in
+	 * another one.
+	 * 
+	 * @param other the other set.
+	 * @return a new set.
+	 */
+	RecordBitmap andNot(RecordBitmap other) {
+		RecordBitmap result = new RecordBitmap();
+
+		int j = 0;
+		for (int i = 0; i < size; i++) {
+			while (j < other.size && other.keys[j] < keys[i]) {
+				j++;
+			}
+
+			if (j < other.size && other.keys[j] == keys[i]) {
+				result.append(keys[i], containers[i].andNot(other.containers[j]));
+			} else {
+				result.append(keys[i], containers[i].copy());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Create a copy of the set.
+	 * 
+	 * @return a new set.
+	 */
+	RecordBitmap copy() {
+		RecordBitmap result = new RecordBitmap();
+		for (int i = 0; i < size; i++) {
+			result.append(keys[i], containers[i].copy());
+		}
+		return result;
+	}
+
+	/**
+	 * Get the record numbers in the set in order.
+	 * 
+	 * @return record numbers.
+	 */
+	List<Integer> toList() {
+		List<Integer> recNos = new ArrayList<Integer>(cardinality());
+		for (int i = 0; i < size; i++) {
+			containers[i].addTo(recNos, keys[i] << 16, 0, Integer.MAX_VALUE);
+		}
+		return recNos;
+	}
+
+	/**
+	 * Get the record numbers in the set in order, from a record number up to a
+	 * number of record numbers. The containers before the record number are
+	 * skipped without being read.
+	 * 
+	 * @param fromRecNo the least record number, which is not negative.
+	 * @param maxCount  the max number of record numbers.
+	 * @return record numbers.
+	 */
+	List<Integer> toList(int fromRecNo, int maxCount) {
+		List<Integer> recNos = new ArrayList<Integer>();
+		char fromKey = (char) (fromRecNo >>> 16);
+		for (int i = 0; i < size && recNos.size() < maxCount; i++) {
+			if (keys[i] > fromKey) {
+				containers[i].addTo(recNos, keys[i] << 16, 0, maxCount);
+			} else if (keys[i] == fromKey) {
+				containers[i].addTo(recNos, keys[i] << 16, fromRecNo & 0xFFFF, maxCount);
+			}
+		}
+		return recNos;
+	}
+
+	/**
+	 * Insert a container at a specific position.
+	 * 
+	 * @param i         position.
+	 * @param key       higher 16 bits of the record numbers in the container.
+	 * @param container container.
+	 */
+	private void insert(int i, char key, Container container) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(containers, i, containers, i + 1, size - i);
+		keys[i] = key;
+		containers[i] = container;
+		size++;
+	}
+
+	/**
+	 * Append a container after the last one; an empty container is ignored.
+	 * 
+	 * @param key       higher 16 bits of the record numbers in the container,
+	 *                  which is greater than the ones of existing containers.
+	 * @param container container.
+	 */
+	private void append(char key, Container container) {
+		if (container.cardinality() > 0) {
+			insert(size, key, container);
+		}
+	}
+
+	/**
+	 * The lower 16 bits of the record numbers with the same higher 16 bits.
+	 */
+	private static abstract class Container {
+		abstract Container add(char value);
+
+		abstract Container remove(char value);
+
+		abstract boolean contains(char value);
+
+		abstract int cardinality();
+
+		abstract Container and(Container other);
+
+		abstract Container or(Container other);
+
+		abstract Container andNot(Container other);
+
+		abstract Container copy();
+
+		abstract long getSizeInBytes();
+
+		/**
+		 * Add the record numbers of the values not less than fromValue, until
+		 * the list holds maxCount record numbers.
+		 */
+		abstract void addTo(List<Integer> recNos, int high, int fromValue, int maxCount);
+	}
+
+	/**
+	 * A sorted array of at most 4096 values.
+	 */
+	private static class ArrayContainer extends Container {
+		private char[] values;
+		private int cardinality;
+
+		ArrayContainer(char[] values, int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		Container add(char value) {
+			int i = Arrays.binarySearch(values, 0, cardinality, value);
+			if (i >= 0) {
+				return this;
+			}
+
+			if (cardinality == ARRAY_MAX_SIZE) {
+				return toBitmap().add(value);
+			}
+
+			i = -i - 1;
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX_SIZE));
+			}
+			System.arraycopy(values, i, values, i + 1, cardinality - i);
+			values[i] = value;
+			cardinality++;
+			return this;
+		}
+
+		Container remove(char value) {
+			int i = Arrays.binarySearch(values, 0, cardinality, value);
+			if (i >= 0) {
+				System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+				cardinality--;
+			}
+			return this;
+		}
+
+		boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		Container and(Container other) {
+			return filter(other, true);
+		}
+
+		Container or(Container other) {
+			if (other instanceof BitmapContainer) {
+				return other.or(this);
+			}
+
+			ArrayContainer array = (ArrayContainer) other;
+			char[] merged = new char[cardinality + array.cardinality];
+			int i = 0, j = 0, n = 0;
+			while (i < cardinality || j < array.cardinality) {
+				if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+					merged[n++] = values[i++];
+				} else if (i == cardinality || values[i] > array.values[j]) {
+					merged[n++] = array.values[j++];
+				} else {
+					merged[n++] = values[i++];
+					j++;
+				}
+			}
+
+			ArrayContainer result = new ArrayContainer(merged, n);
+			return (n > ARRAY_MAX_SIZE ? result.toBitmap() : result);
+		}
+
+		Container andNot(Container other) {
+			return filter(other, false);
+		}
+
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+		}
+
+		long getSizeInBytes() {
+			return 2 * OBJECT_OVERHEAD + values.length * 2L;
+		}
+
+		void addTo(List<Integer> recNos, int high, int fromValue, int maxCount) {
+			int i = Arrays.binarySearch(values, 0, cardinality, (char) fromValue);
+			for (i = (i < 0 ? -i - 1 : i); i < cardinality && recNos.size() < maxCount; i++) {
+				recNos.add(high | values[i]);
+			}
+		}
+
+		/**
+		 * Keep the values which are(or are not) in another container.
+		 */
+		private Container filter(Container other, boolean isContained) {
+			char[] filtered = new char[Math.max(cardinality, 1)];
+			int n = 0;
+			for (int i = 0; i < cardinality; i++) {
+				if (other.contains(values[i]) == isContained) {
+					filtered[n++] = values[i];
+				}
+			}
+			return new ArrayContainer(filtered, n);
+		}
+
+		private BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer(new long[BITMAP_WORDS], 0);
+			for (int i = 0; i < cardinality; i++) {
+				bitmap.add(values[i]);
+			}
+			return bitmap;
+		}
+	}
+
+	/**
+	 * A bitmap of 65536 bits for more than 4096 values.
+	 */
+	private static class BitmapContainer extends Container {
+		private final long[] words;
+		private int cardinality;
+
+		BitmapContainer(long[] words, int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		Container add(char value) {
+			long word = words[value >>> 6];
+			long bit = 1L << value;
+			if ((word & bit) == 0) {
+				words[value >>> 6] = word | bit;
+				cardinality++;
+			}
+			return this;
+		}
+
+		Container remove(char value) {
+			long word = words[value >>> 6];
+			long bit = 1L << value;
+			if ((word & bit) != 0) {
+				words[value >>> 6] = word & ~bit;
+				cardinality--;
+			}
+			return (cardinality <= ARRAY_MAX_SIZE ? toArray() : this);
+		}
+
+		boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		Container and(Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+
+			long[] otherWords = ((BitmapContainer) other).words;
+			long[] result = new long[BITMAP_WORDS];
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				result[i] = words[i] & otherWords[i];
+			}
+			return normalize(result);
+		}
+
+		Container or(Container other) {
+			long[] result = words.clone();
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					result[array.values[i] >>> 6] |= 1L << array.values[i];
+				}
+			} else {
+				long[] otherWords = ((BitmapContainer) other).words;
+				for (int i = 0; i < BITMAP_WORDS; i++) {
+					result[i] |= otherWords[i];
+				}
+			}
+			return normalize(result);
+		}
+
+		Container andNot(Container other) {
+			long[] result = words.clone();
+			if (other instanceof ArrayContainer) {
+				ArrayContainer array = (ArrayContainer) other;
+				for (int i = 0; i < array.cardinality; i++) {
+					result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+				}
+			} else {
+				long[] otherWords = ((BitmapContainer) other).words;
+				for (int i = 0; i < BITMAP_WORDS; i++) {
+					result[i] &= ~otherWords[i];
+				}
+			}
+			return normalize(result);
+		}
+
+		Container copy() {
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+
+		long getSizeInBytes() {
+			return 2 * OBJECT_OVERHEAD + words.length * 8L;
+		}
+
+		void addTo(List<Integer> recNos, int high, int fromValue, int maxCount) {
+			for (int i = fromValue >>> 6; i < BITMAP_WORDS; i++) {
+				long word = (i == fromValue >>> 6 ? words[i] & (-1L << (fromValue & 63)) : words[i]);
+				while (word != 0 && recNos.size() < maxCount) {
+					recNos.add(high | (i << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		}
+
+		/**
+		 * Create a container from the bitmap; a bitmap with at most 4096 values
+		 * becomes an array container.
+		 */
+		private static Container normalize(long[] words) {
+			int cardinality = 0;
+			for (long word : words) {
+				cardinality += Long.bitCount(word);
+			}
+
+			BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+			return (cardinality <= ARRAY_MAX_SIZE ? bitmap.toArray() : bitmap);
+		}
+
+		private ArrayContainer toArray() {
+			char[] values = new char[Math.max(cardinality, 1)];
+			int n = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long word = words[i];
+				while (word != 0) {
+					values[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, n);
+		}
+	}
+
+}
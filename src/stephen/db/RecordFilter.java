@@ -0,0 +1,63 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.List;
+
+import stephen.db.file.Record;
+import stephen.db.file.RecordMatcher;
+
+/**
+ * RecordFilter object filters records by a whole search condition: the prefix
+ * (or exact) criteria evaluated by a <code>RecordMatcher</code>, and the range
+ * conditions evaluated by <code>RangePredicate</code> objects. A record
+ * matches if it satisfies all of them.
+ * <p>
+ * RecordFilter object is immutable and can be shared by multiple threads.
+ * 
+ * @see stephen.db.file.RecordMatcher
+ * @see stephen.db.RangePredicate
+ * @author Stephen Liu
+ * 
+ */
+class RecordFilter implements RecordPredicate {
+	private final RecordMatcher matcher;
+	private final RangePredicate[] ranges;
+
+	/**
+	 * Creates a RecordFilter object.
+	 * 
+	 * @param matcher record matcher for the criteria.
+	 * @param ranges  range predicates.
+	 */
+	RecordFilter(RecordMatcher matcher, List<RangePredicate> ranges) {
+		this.matcher = matcher;
+		this.ranges = ranges.toArray(new RangePredicate[ranges.size()]);
+	}
+
+	/**
+	 * Determine if a record matches the search condition.
+	 * 
+	 * @param record record data.
+	 * @return true if the record matches all criteria and range conditions.
+	 */
+	public boolean matches(Record record) {
+		if (!matcher.matches(record)) {
+			return false;
+		}
+
+		for (RangePredicate range : ranges) {
+			if (!range.matches(record)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import stephen.db.file.Record;
+
+/**
+ * The interface of a condition which is evaluated against each record during
+ * searching data file.
+ * 
+ * @see stephen.db.RecordFilter
+ * @see stephen.db.SearchCondition
+ * @author Stephen Liu
+ * 
+ */
+interface RecordPredicate {
+	/**
+	 * Determine if a record matches the condition.
+	 * 
+	 * @param record record data.
+	 * @return true if the record matches the condition.
+	 */
+	boolean matches(Record record);
+}
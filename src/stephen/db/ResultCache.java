@@ -0,0 +1,205 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import stephen.common.Constant;
+import stephen.db.file.Record;
+
+/**
+ * ResultCache object keeps the record numbers matched by recent searches, so a
+ * repeated search reads the matched records directly without planning or
+ * evaluating its condition again. The entries are keyed by the normalized
+ * search conditions, so the same search written in a different order of its
+ * operands shares one entry.
+ * <p>
+ * A search fetched page by page fills its entry gradually: the entry knows
+ * all matched records before a record number, and it can answer a page only
+ * if the page ends before that record number. Once the last page has been
+ * searched, the entry knows all matched records.
+ * <p>
+ * An entry is removed as soon as a change of a record could change its result:
+ * the changed or deleted record was matched, or the created or changed record
+ * matches the condition and is before the end of the entry.
+ * <p>
+ * Whenever a result is put into the cache, the entries older than
+ * <code>Constant.RESULT_CACHE_MAX_AGE</code> milliseconds are removed, then
+ * the least recently used entries are removed while there are more than
+ * <code>Constant.RESULT_CACHE_SIZE</code> entries, or while the matched record
+ * numbers take more than <code>Constant.RESULT_CACHE_MAX_BYTES</code> bytes as
+ * estimated by <code>RecordBitmap.getSizeInBytes()</code>. An entry found older
+ * than the max age by a lookup is removed as well.
+ * <p>
+ * A search which is evaluated while records are changed may have missed the
+ * changes; the result of such a search isn't put into the cache, which is
+ * detected by a generation number increased by every change.
+ * <p>
+ * ResultCache object is thread-safe.
+ * 
+ * @see stephen.db.SearchCondition
+ * @author Stephen Liu
+ * 
+ */
+class ResultCache {
+	// cached entries by normalized search conditions, in the order of access.
+	private final Map<SearchCondition, Entry> entries = new LinkedHashMap<SearchCondition, Entry>(16, 0.75f, true);
+
+	// approximate memory taken by the record numbers of all entries.
+	private long sizeInBytes;
+
+	// increased whenever a record is changed.
+	private long generation;
+
+	/**
+	 * Get the current generation number, which is taken before a search is
+	 * evaluated and passed to <code>put()</code> with its result.
+	 * 
+	 * @return the generation number.
+	 */
+	synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Get the cached record numbers for a page of a search. The record numbers
+	 * are returned only if the cache knows all matched records in the page and
+	 * the first matched record after it.
+	 * 
+	 * @param condition normalized search condition.
+	 * @param fromRecNo the record number where the page begins.
+	 * @param maxRows   the max number of records in the page.
+	 * @return the matched record numbers from <code>fromRecNo</code>, with at
+	 *         most one record number after the page; null if the page can't be
+	 *         answered by the cache.
+	 */
+	synchronized List<Integer> find(SearchCondition condition, int fromRecNo, int maxRows) {
+		Entry entry = entries.get(condition);
+		if (entry == null) {
+			return null;
+		} else if (entry.isExpired(System.currentTimeMillis())) {
+			entries.remove(condition);
+			sizeInBytes -= entry.sizeInBytes;
+			return null;
+		}
+
+		int maxCount = (maxRows == Integer.MAX_VALUE ? maxRows : maxRows + 1);
+		List<Integer> recNos = entry.recNos.toList(Math.max(fromRecNo, 0), maxCount);
+		if (entry.endRecNo == Integer.MAX_VALUE || recNos.size() == maxCount
+				&& recNos.get(recNos.size() - 1) < entry.endRecNo) {
+			return recNos;
+		}
+		return null;
+	}
+
+	/**
+	 * Put the result of a page of a search into the cache. The result starts a
+	 * new entry if the page is the first one, or it extends the entry which
+	 * knows all matched records before the page. The result is ignored if any
+	 * record has been changed since the search began. The expired and the least
+	 * recently used entries are removed afterwards.
+	 * 
+	 * @param condition  normalized search condition.
+	 * @param predicate  the predicate of the search condition.
+	 * @param generation the generation number taken before the search began.
+	 * @param fromRecNo  the record number where the page begins.
+	 * @param recNos     the matched record numbers in the page.
+	 * @param nextRecNo  the record number where the next page begins; -1 if
+	 *                   there are no more matched records.
+	 */
+	synchronized void put(SearchCondition condition, RecordPredicate predicate, long generation, int fromRecNo,
+			List<Integer> recNos, int nextRecNo) {
+		if (generation != this.generation) {
+			return;
+		}
+
+		Entry entry = entries.get(condition);
+		if (entry == null || fromRecNo > entry.endRecNo) {
+			if (fromRecNo > 0) {
+				return;
+			}
+			entry = new Entry(predicate);
+			entries.put(condition, entry);
+		}
+
+		for (int recNo : recNos) {
+			entry.recNos.add(recNo);
+		}
+		entry.endRecNo = Math.max(entry.endRecNo, nextRecNo < 0 ? Integer.MAX_VALUE : nextRecNo);
+
+		long bytes = entry.recNos.getSizeInBytes();
+		sizeInBytes += bytes - entry.sizeInBytes;
+		entry.sizeInBytes = bytes;
+
+		evict();
+	}
+
+	/**
+	 * Remove the entries whose results could be changed by a change of a
+	 * record. It is called after the change has been applied to data file.
+	 * 
+	 * @param recNo  record number of the changed record.
+	 * @param record the new data of the record; null if the record is deleted.
+	 */
+	synchronized void invalidate(int recNo, Record record) {
+		generation++;
+		for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			if (entry.recNos.contains(recNo)
+					|| record != null && recNo < entry.endRecNo && entry.predicate.matches(record)) {
+				it.remove();
+				sizeInBytes -= entry.sizeInBytes;
+			}
+		}
+	}
+
+	/**
+	 * Remove the expired entries, then remove the least recently used entries
+	 * until both the number of entries and their size are within the limits.
+	 */
+	private void evict() {
+		long now = System.currentTimeMillis();
+		int count = entries.size();
+		for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			if (entry.isExpired(now) || count > Constant.RESULT_CACHE_SIZE
+					|| sizeInBytes > Constant.RESULT_CACHE_MAX_BYTES) {
+				it.remove();
+				sizeInBytes -= entry.sizeInBytes;
+				count--;
+			}
+		}
+	}
+
+	/**
+	 * The matched records of a search.
+	 */
+	private static class Entry {
+		private final RecordPredicate predicate;
+		private final RecordBitmap recNos = new RecordBitmap();
+		private final long createdTime = System.currentTimeMillis();
+
+		// all matched records before the record number are known.
+		private int endRecNo;
+
+		// approximate memory taken by the record numbers.
+		private long sizeInBytes;
+
+		Entry(RecordPredicate predicate) {
+			this.predicate = predicate;
+		}
+
+		boolean isExpired(long now) {
+			return now - createdTime > Constant.RESULT_CACHE_MAX_AGE;
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.io.Serializable;
+
+/**
+ * This class describes one page of the records found by a search: the data of
+ * the matched records in the order of the record numbers, and the record
+ * number where the next page begins.
+ * <p>
+ * The pages are fetched one by one; the next page is searched from the record
+ * number given by the previous page. No search state is kept in the database
+ * between the pages, so the records created, changed or deleted in the
+ * meantime are seen by the following pages if they are after the position of
+ * the search.
+ * 
+ * @see stephen.db.ConditionSearchable#select(SearchCondition, int, int)
+ * @author Stephen Liu
+ * 
+ */
+public class ResultPage implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String[][] rows;
+	private final int nextRecNo;
+
+	/**
+	 * Create a page of records.
+	 * 
+	 * @param rows      the data of the records in the page.
+	 * @param nextRecNo the record number where the next page begins; -1 if no
+	 *                  more records match.
+	 */
+	public ResultPage(String[][] rows, int nextRecNo) {
+		this.rows = rows;
+		this.nextRecNo = nextRecNo;
+	}
+
+	/**
+	 * Get the data of the records in the page.
+	 * 
+	 * @return the data of the records.
+	 */
+	public String[][] getRows() {
+		return rows;
+	}
+
+	/**
+	 * Get the record number where the next page begins.
+	 * 
+	 * @return the record number; -1 if no more records match.
+	 */
+	public int getNextRecNo() {
+		return nextRecNo;
+	}
+
+	/**
+	 * Determine if more records match after the page.
+	 * 
+	 * @return true if there is a next page.
+	 */
+	public boolean hasNext() {
+		return nextRecNo >= 0;
+	}
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import stephen.common.Messages;
+
+/**
+ * This class describes a tree of search conditions which is evaluated by the
+ * database as a whole. The leaves of the tree are prefix conditions, which are
+ * matched in the same way as the criteria of <code>DBMain.find()</code>, and
+ * range conditions; the leaves are combined by AND and OR operations.
+ * <p>
+ * The tree is serializable, so it can be transfered to remote database server
+ * in one command. A condition on a column which doesn't exist in database
+ * schema is ignored, that is, it is matched by all records.
+ * <p>
+ * For example, the rooms in hotel 'Palace' or in city 'Smallville' under
+ * $120:<br>
+ * <code>
+ *   SearchCondition.and(SearchCondition.or(SearchCondition.prefix("name", "Palace"),
+ *                                          SearchCondition.prefix("location", "Smallville")),
+ *                       SearchCondition.range(new RangeCriterion("rate", null, false, "120", false)));
+ * </code>
+ * 
+ * @see stephen.db.ConditionSearchable
+ * @author Stephen Liu
+ * 
+ */
+public abstract class SearchCondition implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static Logger logger = Logger.getLogger(SearchCondition.class.getName());
+
+	SearchCondition() {
+	}
+
+	/**
+	 * Create a condition which is matched by all records.
+	 * 
+	 * @return the condition.
+	 */
+	public static SearchCondition any() {
+		return new AnyCondition();
+	}
+
+	/**
+	 * Create a condition that the value of a column begins with a prefix.
+	 * 
+	 * @param columnName column name.
+	 * @param value      the prefix; null or empty means any value.
+	 * @return the condition.
+	 */
+	public static SearchCondition prefix(String columnName, String value) {
+		return new PrefixCondition(columnName, value);
+	}
+
+	/**
+	 * Create a condition that the value of a column is in a range.
+	 * 
+	 * @param range range condition.
+	 * @return the condition.
+	 */
+	public static SearchCondition range(RangeCriterion range) {
+		return new RangeCondition(range);
+	}
+
+	/**
+	 * Create a condition that both conditions are satisfied.
+	 * 
+	 * @param first  the first condition.
+	 * @param second the second condition.
+	 * @return the condition.
+	 * @throws IllegalArgumentException if either condition is null.
+	 */
+	public static SearchCondition and(SearchCondition first, SearchCondition second) {
+		checkOperands("AND", first, second); //$NON-NLS-1$
+		return new LogicCondition(true, first, second);
+	}
+
+	/**
+	 * Create a condition that at least one of both conditions is satisfied.
+	 * 
+	 * @param first  the first condition.
+	 * @param second the second condition.
+	 * @return the condition.
+	 * @throws IllegalArgumentException if either condition is null.
+	 */
+	public static SearchCondition or(SearchCondition first, SearchCondition second) {
+		checkOperands("OR", first, second); //$NON-NLS-1$
+		return new LogicCondition(false, first, second);
+	}
+
+	/**
+	 * Check the operands of a logic condition, so a null operand is reported
+	 * when the condition is built rather than when it is evaluated.
+	 * 
+	 * @param operator the name of the logic operation.
+	 * @param first    the first condition.
+	 * @param second   the second condition.
+	 * @throws IllegalArgumentException if either condition is null.
+	 */
+	private static void checkOperands(String operator, SearchCondition first, SearchCondition second) {
+		if (first == null || second == null) {
+			String errMsg = Messages.getString("SearchCondition.nullOperand", new Object[] { operator }); //$NON-NLS-1$
+			throw new IllegalArgumentException(errMsg);
+		}
+	}
+
+	/**
+	 * Compile the condition into a predicate which is evaluated against the
+	 * records.
+	 * 
+	 * @param compiler predicate compiler.
+	 * @return the predicate.
+	 * @throws IllegalArgumentException if a range condition can't be evaluated.
+	 */
+	abstract RecordPredicate compile(PredicateCompiler compiler);
+
+	/**
+	 * Get the normalized form of the condition, which is the same for the
+	 * conditions matching records in the same way: the prefixes are trimmed
+	 * and an empty prefix becomes a condition matched by all records; the
+	 * operands of nested AND or OR operations are flattened, the duplicated
+	 * operands are removed, and the operands are sorted by their string forms.
+	 * 
+	 * @return the normalized condition.
+	 */
+	abstract SearchCondition normalize();
+
+	/**
+	 * Make the plan node of the condition.
+	 * 
+	 * @param planner search planner.
+	 * @return plan node.
+	 * @throws IllegalArgumentException if a range condition can't be evaluated.
+	 */
+	abstract SearchPlanner.Node plan(SearchPlanner planner);
+
+	/**
+	 * Get the index of a column in database schema; a warning is logged if the
+	 * column doesn't exist.
+	 */
+	private static int getColumnIndex(DBSchema schema, String columnName, SearchCondition condition) {
+		int columnIndex = schema.getColumnIndex(columnName);
+		if (columnIndex < 0) {
+			String errMsg = Messages.getString("SearchCondition.columnNonexist", //$NON-NLS-1$
+					new Object[] { columnName, condition });
+			logger.warning(errMsg);
+		}
+		return columnIndex;
+	}
+
+	/**
+	 * The condition which is matched by all records.
+	 */
+	private static class AnyCondition extends SearchCondition {
+		private static final long serialVersionUID = 1L;
+
+		RecordPredicate compile(PredicateCompiler compiler) {
+			return PredicateCompiler.ANY;
+		}
+
+		SearchCondition normalize() {
+			return this;
+		}
+
+		SearchPlanner.Node plan(SearchPlanner planner) {
+			return planner.any(this);
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof AnyCondition;
+		}
+
+		public int hashCode() {
+			return AnyCondition.class.hashCode();
+		}
+
+		public String toString() {
+			return "(ANY)"; //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * The condition that the value of a column begins with a prefix.
+	 */
+	private static class PrefixCondition extends SearchCondition {
+		private static final long serialVersionUID = 1L;
+		private final String columnName;
+		private final String value;
+
+		PrefixCondition(String columnName, String value) {
+			this.columnName = columnName;
+			this.value = value;
+		}
+
+		RecordPredicate compile(PredicateCompiler compiler) {
+			int columnIndex = getColumnIndex(compiler.getSchema(), columnName, this);
+			if (columnIndex < 0 || value == null) {
+				return PredicateCompiler.ANY;
+			}
+
+			return compiler.prefix(columnIndex, value);
+		}
+
+		SearchCondition normalize() {
+			if (value == null || value.trim().length() == 0) {
+				return any();
+			}
+			return value.trim().equals(value) ? this : prefix(columnName, value.trim());
+		}
+
+		SearchPlanner.Node plan(SearchPlanner planner) {
+			// the warning of a column which doesn't exist is logged by compile().
+			int columnIndex = planner.getSchema().getColumnIndex(columnName);
+			if (columnIndex < 0 || value == null || value.trim().length() == 0) {
+				return planner.any(this);
+			}
+
+			return planner.prefix(this, columnIndex, value);
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PrefixCondition)) {
+				return false;
+			}
+
+			PrefixCondition other = (PrefixCondition) obj;
+			return Objects.equals(columnName, other.columnName) && Objects.equals(value, other.value);
+		}
+
+		public int hashCode() {
+			return Objects.hash(columnName, value);
+		}
+
+		public String toString() {
+			return String.format("(%s=%s)", columnName, value); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * The condition that the value of a column is in a range.
+	 */
+	private static class RangeCondition extends SearchCondition {
+		private static final long serialVersionUID = 1L;
+		private final RangeCriterion range;
+
+		RangeCondition(RangeCriterion range) {
+			this.range = range;
+		}
+
+		RecordPredicate compile(PredicateCompiler compiler) {
+			return compiler.range(range);
+		}
+
+		SearchCondition normalize() {
+			return this;
+		}
+
+		SearchPlanner.Node plan(SearchPlanner planner) {
+			return planner.range(this, range);
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof RangeCondition && Objects.equals(range, ((RangeCondition) obj).range);
+		}
+
+		public int hashCode() {
+			return Objects.hashCode(range);
+		}
+
+		public String toString() {
+			return range.toString();
+		}
+	}
+
+	/**
+	 * The AND or OR operation on two conditions.
+	 */
+	private static class LogicCondition extends SearchCondition {
+		private static final long serialVersionUID = 1L;
+		private final boolean isAnd;
+		private final SearchCondition first;
+		private final SearchCondition second;
+
+		LogicCondition(boolean isAnd, SearchCondition first, SearchCondition second) {
+			this.isAnd = isAnd;
+			this.first = first;
+			this.second = second;
+		}
+
+		RecordPredicate compile(PredicateCompiler compiler) {
+			List<SearchCondition> operands = new ArrayList<SearchCondition>();
+			collectOperands(operands);
+			return isAnd ? compiler.and(operands) : compiler.or(operands);
+		}
+
+		SearchPlanner.Node plan(SearchPlanner planner) {
+			List<SearchCondition> operands = new ArrayList<SearchCondition>();
+			collectOperands(operands);
+			return isAnd ? planner.and(this, operands) : planner.or(this, operands);
+		}
+
+		SearchCondition normalize() {
+			List<SearchCondition> operands = new ArrayList<SearchCondition>();
+			collectOperands(operands);
+
+			SortedMap<String, SearchCondition> normalized = new TreeMap<String, SearchCondition>();
+			for (SearchCondition operand : operands) {
+				List<SearchCondition> nested = new ArrayList<SearchCondition>();
+				SearchCondition condition = operand.normalize();
+				if (condition instanceof LogicCondition && ((LogicCondition) condition).isAnd == isAnd) {
+					((LogicCondition) condition).collectOperands(nested);
+				} else {
+					nested.add(condition);
+				}
+
+				for (SearchCondition n : nested) {
+					if (n instanceof AnyCondition) {
+						// ANY is the identity of AND, and it absorbs OR.
+						if (!isAnd) {
+							return n;
+						}
+					} else {
+						normalized.put(n.toString(), n);
+					}
+				}
+			}
+
+			SearchCondition result = null;
+			for (SearchCondition n : normalized.values()) {
+				result = (result == null ? n : new LogicCondition(isAnd, result, n));
+			}
+			return result == null ? any() : result;
+		}
+
+		/**
+		 * Collect the operands of the nested operations which are the same as
+		 * this operation, such as a, b and c of ((a AND b) AND c).
+		 */
+		private void collectOperands(List<SearchCondition> operands) {
+			for (SearchCondition operand : new SearchCondition[] { first, second }) {
+				if (operand instanceof LogicCondition && ((LogicCondition) operand).isAnd == isAnd) {
+					((LogicCondition) operand).collectOperands(operands);
+				} else {
+					operands.add(operand);
+				}
+			}
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof LogicCondition)) {
+				return false;
+			}
+
+			LogicCondition other = (LogicCondition) obj;
+			return isAnd == other.isAnd && Objects.equals(first, other.first) && Objects.equals(second, other.second);
+		}
+
+		public int hashCode() {
+			return Objects.hash(isAnd, first, second);
+		}
+
+		public String toString() {
+			return String.format(isAnd ? "(%s AND %s)" : "(%s OR %s)", first, second); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+}
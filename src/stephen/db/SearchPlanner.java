@@ -0,0 +1,513 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import stephen.common.Constant;
+import stephen.common.Messages;
+
+/**
+ * SearchPlanner object turns a <code>SearchCondition</code> tree into a search
+ * plan. A plan either finds the candidate records by the secondary indexes and
+ * reads only them, or evaluates the whole condition against each record during
+ * one traversal of the data file; the plan with less estimated cost is chosen.
+ * <p>
+ * In an index plan, a prefix or range condition on an indexed column is a
+ * lookup of the index which returns a bitmap of record numbers; the bitmaps of
+ * the operands of an AND operation are intersected and the ones of an OR
+ * operation are united. An AND operation uses the lookups of its operands from
+ * the most selective one, as long as a lookup costs less than reading the
+ * records it excludes; the other operands are checked against the candidate
+ * records when they are read. An OR operation can only be answered by the
+ * indexes if all of its operands can.
+ * <p>
+ * The costs are estimated from simple statistics: the number of records in
+ * data file and the number of records matched by each indexed condition,
+ * which is counted by the index up to the number where reading the records
+ * would cost more than traversing the data file. A condition on a column
+ * without index is assumed to match a fixed part of the records.
+ * <p>
+ * The cost of traversing one record is 1; the cost of reading one record by
+ * its record number is <code>Constant.PLANNER_RANDOM_READ_COST</code>.
+ * 
+ * @see stephen.db.SearchCondition
+ * @author Stephen Liu
+ * 
+ */
+class SearchPlanner {
+	// the cost of visiting one index entry.
+	private static final double INDEX_ENTRY_COST = 0.1;
+
+	// the assumed selectivity of a prefix condition on a column without index.
+	private static final double PREFIX_SELECTIVITY = 0.1;
+
+	// the assumed selectivity of a range condition on a column without index.
+	private static final double RANGE_SELECTIVITY = 0.3;
+
+	private final DBSchema schema;
+	private final List<SecondaryIndex> indexes;
+	private final double recordCount;
+	private final int countLimit;
+
+	/**
+	 * Creates a SearchPlanner object.
+	 * 
+	 * @param schema      database schema.
+	 * @param indexes     secondary indexes.
+	 * @param recordCount the number of records in data file.
+	 */
+	SearchPlanner(DBSchema schema, List<SecondaryIndex> indexes, int recordCount) {
+		this.schema = schema;
+		this.indexes = indexes;
+		this.recordCount = Math.max(recordCount, 1);
+		this.countLimit = (int) (this.recordCount / Constant.PLANNER_RANDOM_READ_COST) + 1;
+	}
+
+	/**
+	 * Get the database schema.
+	 * 
+	 * @return database schema.
+	 */
+	DBSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Make the search plan for a condition.
+	 * 
+	 * @param condition search condition.
+	 * @return the plan with less estimated cost.
+	 * @throws IllegalArgumentException if a range condition can't be evaluated.
+	 */
+	Plan plan(SearchCondition condition) {
+		Node root = condition.plan(this);
+
+		double scanCost = recordCount;
+		if (root.isIndexed) {
+			double cost = root.cost + root.candidates * Constant.PLANNER_RANDOM_READ_COST;
+			if (cost < scanCost) {
+				return new Plan(condition, root, cost, false);
+			}
+		}
+
+		return new Plan(condition, root, scanCost, true);
+	}
+
+	/**
+	 * Determine if the first records in the order of a range index can be found
+	 * at less cost than the plan, by reading the records in the order of the
+	 * index until <code>limit</code> records match the condition. The matched
+	 * records are assumed to be spread evenly in the order of the index.
+	 * 
+	 * @param plan  the plan of the condition.
+	 * @param limit the number of records needed.
+	 * @return true if reading the records in the order of the index costs less.
+	 */
+	boolean prefersIndexOrder(Plan plan, int limit) {
+		double reads = Math.min((double) limit * recordCount / Math.max(plan.root.rows, 1), recordCount);
+		return reads * (Constant.PLANNER_RANDOM_READ_COST + INDEX_ENTRY_COST) < plan.cost;
+	}
+
+	/**
+	 * Plan a condition which is matched by all records.
+	 * 
+	 * @param condition search condition.
+	 * @return plan node.
+	 */
+	Node any(SearchCondition condition) {
+		return new FilterNode(condition, recordCount, true);
+	}
+
+	/**
+	 * Plan a prefix condition on a column.
+	 * 
+	 * @param condition   search condition.
+	 * @param columnIndex the index of the column in database schema.
+	 * @param value       the prefix, which isn't empty.
+	 * @return plan node.
+	 */
+	Node prefix(SearchCondition condition, int columnIndex, final String value) {
+		SecondaryIndex index = getIndex(columnIndex);
+		if (index instanceof BitmapIndex) {
+			final BitmapIndex bitmapIndex = (BitmapIndex) index;
+			return new LookupNode(condition, "BITMAP INDEX", bitmapIndex.count(value), false) {
+				RecordBitmap lookup() {
+					return bitmapIndex.find(value, false);
+				}
+			};
+		} else if (index instanceof PrefixIndex) {
+			// the records found by a prefix index have to be checked.
+			final PrefixIndex prefixIndex = (PrefixIndex) index;
+			return new LookupNode(condition, "PREFIX INDEX", prefixIndex.count(value, countLimit), true) {
+				RecordBitmap lookup() {
+					RecordBitmap bitmap = new RecordBitmap();
+					for (int recNo : prefixIndex.find(value)) {
+						bitmap.add(recNo);
+					}
+					return bitmap;
+				}
+			};
+		}
+
+		return new FilterNode(condition, recordCount * PREFIX_SELECTIVITY, false);
+	}
+
+	/**
+	 * Plan a range condition.
+	 * 
+	 * @param condition search condition.
+	 * @param range     range condition.
+	 * @return plan node.
+	 * @throws IllegalArgumentException if the range condition can't be
+	 *                                  evaluated.
+	 */
+	Node range(SearchCondition condition, RangeCriterion range) {
+		final RangePredicate predicate = new RangePredicate(schema, range);
+
+		SecondaryIndex index = getIndex(predicate.getColumnIndex());
+		if (index instanceof RangeIndex) {
+			final RangeIndex rangeIndex = (RangeIndex) index;
+			return new LookupNode(condition, "RANGE INDEX", rangeIndex.count(predicate, countLimit), false) {
+				RecordBitmap lookup() {
+					return rangeIndex.find(predicate);
+				}
+			};
+		} else if (index instanceof BitmapIndex) {
+			final BitmapIndex bitmapIndex = (BitmapIndex) index;
+			return new LookupNode(condition, "BITMAP INDEX", bitmapIndex.count(predicate), false) {
+				RecordBitmap lookup() {
+					return bitmapIndex.find(predicate);
+				}
+			};
+		}
+
+		return new FilterNode(condition, recordCount * RANGE_SELECTIVITY, false);
+	}
+
+	/**
+	 * Plan an AND operation.
+	 * 
+	 * @param condition search condition.
+	 * @param operands  the operands of the AND operation.
+	 * @return plan node.
+	 */
+	Node and(SearchCondition condition, List<SearchCondition> operands) {
+		List<Node> children = new ArrayList<Node>();
+		for (SearchCondition operand : operands) {
+			children.add(operand.plan(this));
+		}
+		return new AndNode(condition, children);
+	}
+
+	/**
+	 * Plan an OR operation.
+	 * 
+	 * @param condition search condition.
+	 * @param operands  the operands of the OR operation.
+	 * @return plan node.
+	 */
+	Node or(SearchCondition condition, List<SearchCondition> operands) {
+		List<Node> children = new ArrayList<Node>();
+		for (SearchCondition operand : operands) {
+			children.add(operand.plan(this));
+		}
+		return new OrNode(condition, children);
+	}
+
+	private SecondaryIndex getIndex(int columnIndex) {
+		for (SecondaryIndex index : indexes) {
+			if (index.getColumnIndex() == columnIndex) {
+				return index;
+			}
+		}
+
+		return null;
+	}
+
+	private static String format(double number) {
+		return String.format("%.0f", number); //$NON-NLS-1$
+	}
+
+	/**
+	 * A search plan.
+	 */
+	static class Plan {
+		private final SearchCondition condition;
+		private final Node root;
+		private final double cost;
+		private final boolean isScan;
+
+		private Plan(SearchCondition condition, Node root, double cost, boolean isScan) {
+			this.condition = condition;
+			this.root = root;
+			this.cost = cost;
+			this.isScan = isScan;
+		}
+
+		/**
+		 * Determine if the plan traverses the data file.
+		 * 
+		 * @return true if the whole condition is evaluated during traversing the
+		 *         data file; false if the candidate records are found by the
+		 *         indexes.
+		 */
+		boolean isScan() {
+			return isScan;
+		}
+
+		/**
+		 * Find the candidate records by the indexes.
+		 * 
+		 * @return a bitmap of the candidate record numbers.
+		 */
+		RecordBitmap lookup() {
+			return root.lookup();
+		}
+
+		/**
+		 * Determine if the candidate records have to be checked against the
+		 * condition.
+		 * 
+		 * @return true if some candidates may not match the condition.
+		 */
+		boolean needsCheck() {
+			return root.needsCheck;
+		}
+
+		/**
+		 * Describe the plan, one node per line.
+		 * 
+		 * @return the description of the plan.
+		 */
+		String explain() {
+			StringBuilder buffer = new StringBuilder();
+			if (isScan) {
+				buffer.append("SCAN ").append(condition); //$NON-NLS-1$
+				buffer.append(" rows=").append(format(root.rows)); //$NON-NLS-1$
+				buffer.append(" cost=").append(format(cost)); //$NON-NLS-1$
+				return buffer.toString();
+			}
+
+			buffer.append("FETCH"); //$NON-NLS-1$
+			if (root.needsCheck) {
+				buffer.append(" AND CHECK ").append(condition); //$NON-NLS-1$
+			}
+			buffer.append(" rows=").append(format(root.rows)); //$NON-NLS-1$
+			buffer.append(" cost=").append(format(cost)); //$NON-NLS-1$
+			root.explain(buffer, "  "); //$NON-NLS-1$
+			return buffer.toString();
+		}
+	}
+
+	/**
+	 * A node of the plan tree.
+	 */
+	abstract static class Node {
+		final SearchCondition condition;
+
+		// the estimated number of records matching the condition.
+		double rows;
+
+		// found by the indexes or not.
+		boolean isIndexed;
+
+		// the estimated number of records found by the indexes.
+		double candidates;
+
+		// the estimated cost of the index lookups.
+		double cost;
+
+		// the records found by the indexes may not match the condition.
+		boolean needsCheck;
+
+		Node(SearchCondition condition) {
+			this.condition = condition;
+		}
+
+		/**
+		 * Find the candidate records by the indexes. Only the nodes found by the
+		 * indexes can be looked up.
+		 * 
+		 * @return a new bitmap of the record numbers.
+		 * @throws IllegalStateException if the node isn't found by the indexes.
+		 */
+		RecordBitmap lookup() {
+			String errMsg = Messages.getString("SearchPlanner.notIndexed", new Object[] { condition }); //$NON-NLS-1$
+			throw new IllegalStateException(errMsg);
+		}
+
+		/**
+		 * Append the description of the node and its children.
+		 * 
+		 * @param buffer the buffer where the description is appended.
+		 * @param indent the indent of the node.
+		 */
+		abstract void explain(StringBuilder buffer, String indent);
+	}
+
+	/**
+	 * A condition which is answered by one index.
+	 */
+	private abstract static class LookupNode extends Node {
+		private final String label;
+
+		LookupNode(SearchCondition condition, String label, int count, boolean needsCheck) {
+			super(condition);
+			this.label = label;
+			this.rows = count;
+			this.isIndexed = true;
+			this.candidates = count;
+			this.cost = count * INDEX_ENTRY_COST;
+			this.needsCheck = needsCheck;
+		}
+
+		void explain(StringBuilder buffer, String indent) {
+			buffer.append('\n').append(indent).append(label).append(' ').append(condition);
+			buffer.append(" rows=").append(format(rows)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * A condition which isn't answered by an index; it is checked against the
+	 * records.
+	 */
+	private static class FilterNode extends Node {
+		private final boolean isAny;
+
+		FilterNode(SearchCondition condition, double rows, boolean isAny) {
+			super(condition);
+			this.rows = rows;
+			this.isAny = isAny;
+		}
+
+		void explain(StringBuilder buffer, String indent) {
+			if (!isAny) {
+				buffer.append('\n').append(indent).append("FILTER ").append(condition); //$NON-NLS-1$
+				buffer.append(" rows=").append(format(rows)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * An AND operation, which intersects the bitmaps of the operands answered
+	 * by the indexes.
+	 */
+	private class AndNode extends Node {
+		private final List<Node> lookups = new ArrayList<Node>();
+		private final List<Node> filters = new ArrayList<Node>();
+
+		AndNode(SearchCondition condition, List<Node> children) {
+			super(condition);
+
+			List<Node> indexed = new ArrayList<Node>();
+			rows = recordCount;
+			for (Node child : children) {
+				rows = rows * child.rows / recordCount;
+				if (child.isIndexed) {
+					indexed.add(child);
+				} else if (!(child instanceof FilterNode && ((FilterNode) child).isAny)) {
+					filters.add(child);
+				}
+			}
+
+			// use the lookups from the most selective one.
+			Collections.sort(indexed, new Comparator<Node>() {
+				public int compare(Node node1, Node node2) {
+					return Double.compare(node1.candidates, node2.candidates);
+				}
+			});
+
+			candidates = recordCount;
+			for (Node child : indexed) {
+				double excluded = candidates * (1 - child.candidates / recordCount);
+				if (lookups.isEmpty() || child.cost < excluded * Constant.PLANNER_RANDOM_READ_COST) {
+					lookups.add(child);
+					cost += child.cost;
+					candidates = candidates * child.candidates / recordCount;
+					needsCheck |= child.needsCheck;
+				} else {
+					filters.add(child);
+				}
+			}
+
+			isIndexed = !lookups.isEmpty();
+			needsCheck |= !filters.isEmpty();
+		}
+
+		RecordBitmap lookup() {
+			RecordBitmap bitmap = lookups.get(0).lookup();
+			for (int i = 1; i < lookups.size() && bitmap.cardinality() > 0; i++) {
+				bitmap = bitmap.and(lookups.get(i).lookup());
+			}
+			return bitmap;
+		}
+
+		void explain(StringBuilder buffer, String indent) {
+			buffer.append('\n').append(indent).append("AND"); //$NON-NLS-1$
+			buffer.append(" rows=").append(format(rows)); //$NON-NLS-1$
+			if (isIndexed) {
+				buffer.append(" candidates=").append(format(candidates)); //$NON-NLS-1$
+			}
+			for (Node child : lookups) {
+				child.explain(buffer, indent + "  "); //$NON-NLS-1$
+			}
+			for (Node child : filters) {
+				child.explain(buffer, indent + "  "); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * An OR operation, which unites the bitmaps of the operands; it is answered
+	 * by the indexes only if all operands are.
+	 */
+	private class OrNode extends Node {
+		private final List<Node> children;
+
+		OrNode(SearchCondition condition, List<Node> children) {
+			super(condition);
+			this.children = children;
+
+			double unmatched = 1;
+			isIndexed = true;
+			for (Node child : children) {
+				unmatched *= 1 - child.rows / recordCount;
+				isIndexed &= child.isIndexed;
+				cost += child.cost;
+				candidates += child.candidates;
+				needsCheck |= child.needsCheck;
+			}
+			rows = recordCount * (1 - unmatched);
+			candidates = Math.min(candidates, recordCount);
+		}
+
+		RecordBitmap lookup() {
+			RecordBitmap bitmap = new RecordBitmap();
+			for (Node child : children) {
+				bitmap = bitmap.or(child.lookup());
+			}
+			return bitmap;
+		}
+
+		void explain(StringBuilder buffer, String indent) {
+			buffer.append('\n').append(indent).append("OR"); //$NON-NLS-1$
+			buffer.append(" rows=").append(format(rows)); //$NON-NLS-1$
+			if (isIndexed) {
+				buffer.append(" candidates=").append(format(candidates)); //$NON-NLS-1$
+			}
+			for (Node child : children) {
+				child.explain(buffer, indent + "  "); //$NON-NLS-1$
+			}
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import stephen.db.file.Record;
+
+/**
+ * Interface of the secondary indexes on one column of database schema, which
+ * are maintained when records are created, updated and deleted.
+ * 
+ * @see stephen.db.PrefixIndex
+ * @see stephen.db.BitmapIndex
+ * @author Stephen Liu
+ * 
+ */
+interface SecondaryIndex {
+	/**
+	 * Get the index of the indexed column in database schema.
+	 * 
+	 * @return column index.
+	 */
+	public int getColumnIndex();
+
+	/**
+	 * Add the index entry of a record.
+	 * 
+	 * @param recNo  record number.
+	 * @param record record data.
+	 */
+	public void add(int recNo, Record record);
+
+	/**
+	 * Remove the index entry of a record.
+	 * 
+	 * @param recNo  record number.
+	 * @param record record data before it is deleted.
+	 */
+	public void remove(int recNo, Record record);
+
+	/**
+	 * Update the index entry of a record whose column value may be changed.
+	 * 
+	 * @param recNo     record number.
+	 * @param oldRecord record data before it is changed.
+	 * @param newRecord record data after it is changed.
+	 */
+	public void update(int recNo, Record oldRecord, Record newRecord);
+}
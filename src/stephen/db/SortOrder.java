@@ -0,0 +1,99 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class describes the order of the records returned by a search: the
+ * column whose values the records are sorted by, and the direction.
+ * <p>
+ * The values of 'size', 'rate' and 'date' are compared as numbers in the same
+ * way as a <code>RangeCriterion</code>; the values of the other columns are
+ * compared as trimmed strings. The records whose column value can't be parsed
+ * as a number come after the other records in both directions, and the
+ * records with the same column value are in the order of the record numbers.
+ * <p>
+ * For example, the cheapest rooms first:<br>
+ * <code>
+ *   new SortOrder("rate", false);
+ * </code>
+ * 
+ * @see stephen.db.ConditionSearchable#select(SearchCondition, SortOrder, int)
+ * @author Stephen Liu
+ * 
+ */
+public class SortOrder implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String columnName;
+	private final boolean descending;
+
+	/**
+	 * Create a sort order.
+	 * 
+	 * @param columnName column name.
+	 * @param descending the records are sorted from the greatest value or not.
+	 */
+	public SortOrder(String columnName, boolean descending) {
+		this.columnName = columnName;
+		this.descending = descending;
+	}
+
+	/**
+	 * Get the column name.
+	 * 
+	 * @return column name.
+	 */
+	public String getColumnName() {
+		return columnName;
+	}
+
+	/**
+	 * Determine if the records are sorted from the greatest value.
+	 * 
+	 * @return true if the order is descending.
+	 */
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * Two sort orders are equal if they have the same column and direction.
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object obj) {
+		if (!(obj instanceof SortOrder)) {
+			return false;
+		}
+
+		SortOrder other = (SortOrder) obj;
+		return Objects.equals(columnName, other.columnName) && descending == other.descending;
+	}
+
+	/**
+	 * The hash code is calculated from the column and direction.
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		return Objects.hash(columnName, descending);
+	}
+
+	/**
+	 * Format the sort order to a string.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("(%s %s)", columnName, descending ? "DESC" : "ASC"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
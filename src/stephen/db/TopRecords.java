@@ -0,0 +1,232 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import stephen.common.Messages;
+import stephen.db.file.Record;
+
+/**
+ * TopRecords object keeps the first records in a <code>SortOrder</code>, up
+ * to a limit, while the matched records are offered one by one. The kept
+ * records are in a heap whose head is the last one in the order, so a record
+ * offered after the heap is full is compared with the head only, and the data
+ * of a record are copied only when it is kept. The memory is proportional to
+ * the limit rather than to the number of matched records.
+ * <p>
+ * The values of a column compared as numbers are parsed into keys by
+ * <code>RangeKeyType</code>, the same keys as in a <code>RangeIndex</code>,
+ * so the records can also be offered in the order of the index; see
+ * <code>excludes()</code>.
+ * <p>
+ * TopRecords object isn't thread-safe.
+ * 
+ * @see stephen.db.SortOrder
+ * @author Stephen Liu
+ * 
+ */
+class TopRecords {
+	private final int columnIndex;
+	private final RangeKeyType keyType;
+	private final int limit;
+	private final Comparator<Row> order;
+
+	// the kept records; the head is the last one in the order.
+	private final PriorityQueue<Row> heap;
+	private final Set<Integer> recNos = new HashSet<Integer>();
+
+	/**
+	 * Creates a TopRecords object.
+	 * 
+	 * @param schema database schema.
+	 * @param order  sort order.
+	 * @param limit  the max number of records kept.
+	 * @throws IllegalArgumentException if the column doesn't exist.
+	 */
+	TopRecords(DBSchema schema, SortOrder order, int limit) {
+		this.columnIndex = schema.getColumnIndex(order.getColumnName());
+		if (columnIndex < 0) {
+			String errMsg = Messages.getString("TopRecords.unsupportedColumn", //$NON-NLS-1$
+					new Object[] { order.getColumnName() });
+			throw new IllegalArgumentException(errMsg);
+		}
+
+		this.keyType = RangeKeyType.forColumn(order.getColumnName());
+		this.limit = Math.max(limit, 0);
+		this.order = new RowComparator(order.isDescending());
+		this.heap = new PriorityQueue<Row>(11, Collections.reverseOrder(this.order));
+	}
+
+	/**
+	 * Get the index of the sorted column in database schema.
+	 * 
+	 * @return column index.
+	 */
+	int getColumnIndex() {
+		return columnIndex;
+	}
+
+	/**
+	 * Offer a matched record. The record is kept if there are less records than
+	 * the limit, or if it is before the last kept record in the order, which is
+	 * removed then. A record which is already kept is ignored.
+	 * 
+	 * @param recNo  record number.
+	 * @param record record data.
+	 */
+	void offer(int recNo, Record record) {
+		if (limit == 0 || recNos.contains(recNo)) {
+			return;
+		}
+
+		Row row = new Row(recNo);
+		if (keyType != null) {
+			try {
+				row.key = record.parseField(columnIndex, keyType);
+				row.hasKey = true;
+			} catch (IllegalArgumentException e) {
+				row.hasKey = false;
+			}
+		} else {
+			row.text = record.getString(columnIndex).trim();
+			row.hasKey = true;
+		}
+
+		if (heap.size() >= limit) {
+			if (order.compare(row, heap.peek()) >= 0) {
+				return;
+			}
+			recNos.remove(heap.poll().recNo);
+		}
+
+		row.columns = record.getColumns();
+		heap.add(row);
+		recNos.add(recNo);
+	}
+
+	/**
+	 * Determine if the limit of records are kept, so a record is kept from now
+	 * on only if it is before the last kept record in the order.
+	 * 
+	 * @return true if no more records can be kept without removing one.
+	 */
+	boolean isFull() {
+		return heap.size() >= limit;
+	}
+
+	/**
+	 * Determine if a column value can be parsed into a key, so the record is
+	 * in a range index on the sorted column.
+	 * 
+	 * @param record record data.
+	 * @return true if the value can be parsed; false if it can't, or if the
+	 *         column isn't compared as numbers.
+	 */
+	boolean hasKey(Record record) {
+		if (keyType == null) {
+			return false;
+		}
+
+		try {
+			record.parseField(columnIndex, keyType);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Determine if the records with a key can't be kept any more, since the
+	 * limit is reached and the key is after the keys of all kept records. When
+	 * the records are offered in the order of a range index, no more records
+	 * need to be offered once this method returns true.
+	 * 
+	 * @param key the key of a column value.
+	 * @return true if no record with the key would be kept.
+	 */
+	boolean excludes(long key) {
+		if (!isFull()) {
+			return false;
+		}
+
+		Row row = new Row(Integer.MIN_VALUE);
+		row.key = key;
+		row.hasKey = true;
+		return limit == 0 || order.compare(row, heap.peek()) > 0;
+	}
+
+	/**
+	 * Get the data of the kept records in the order.
+	 * 
+	 * @return the data of the records.
+	 */
+	String[][] getRows() {
+		List<Row> rows = new ArrayList<Row>(heap);
+		Collections.sort(rows, order);
+
+		String[][] result = new String[rows.size()][];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = rows.get(i).columns;
+		}
+		return result;
+	}
+
+	/**
+	 * One offered record with its sort key.
+	 */
+	private static class Row {
+		private final int recNo;
+		private boolean hasKey;
+		private long key;
+		private String text;
+		private String[] columns;
+
+		private Row(int recNo) {
+			this.recNo = recNo;
+		}
+	}
+
+	/**
+	 * Compares the rows by their keys in the direction of the sort order; the
+	 * rows without key come last, and the rows with the same key are compared
+	 * by the record numbers.
+	 */
+	private static class RowComparator implements Comparator<Row> {
+		private final boolean descending;
+
+		private RowComparator(boolean descending) {
+			this.descending = descending;
+		}
+
+		public int compare(Row first, Row second) {
+			int result;
+			if (first.hasKey != second.hasKey) {
+				return first.hasKey ? -1 : 1;
+			} else if (!first.hasKey) {
+				result = 0;
+			} else if (first.text != null) {
+				result = first.text.compareTo(second.text);
+			} else {
+				result = Long.compare(first.key, second.key);
+			}
+
+			if (result != 0) {
+				return descending ? -result : result;
+			}
+			return Integer.compare(first.recNo, second.recNo);
+		}
+	}
+
+}
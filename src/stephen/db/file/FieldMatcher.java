@@ -0,0 +1,119 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+/**
+ * FieldMatcher object determines if the value of one field begins with a
+ * prefix. It matches a field value in the same way as a
+ * <code>RecordMatcher</code> with a single prefix criteria, but the position
+ * and length of the field are taken from the record layout once when it is
+ * created, and the field bytes are compared from the first byte which isn't
+ * trimmed; the comparison stops at the first byte which doesn't match, so the
+ * rest of the field is never read.
+ * <p>
+ * Since the prefix is trimmed and contains no byte 0x00, a field value which
+ * matches all prefix bytes neither ends nor is trimmed inside the prefix;
+ * therefore the bytes after the prefix don't need to be checked.
+ * <p>
+ * FieldMatcher object is immutable and can be shared by multiple threads.
+ * 
+ * @see stephen.db.file.RecordMatcher
+ * @author Stephen Liu
+ * 
+ */
+public final class FieldMatcher {
+	/**
+	 * Encoded byte of the character U+FFFD, which matches any byte not in
+	 * US-ASCII charset.
+	 */
+	private static final byte NON_ASCII = (byte) 0x80;
+
+	private final int fieldOffset;
+	private final int fieldLength;
+	private final byte[] pattern;
+
+	// the prefix can't match any field value.
+	private final boolean isUnmatchable;
+
+	/**
+	 * Creates a FieldMatcher object. The prefix is trimmed before it is compared.
+	 * 
+	 * @param layout  the layout of the records which will be matched.
+	 * @param fieldNo field sequence number in the schema.
+	 * @param prefix  the prefix of the field value.
+	 * @throws FieldNotExistException if fieldNo is greater than or equal to the max
+	 *                                number of fields in the schema, or if fieldNo
+	 *                                is less than 0;
+	 */
+	public FieldMatcher(RecordLayout layout, int fieldNo, String prefix) {
+		this.fieldOffset = layout.getOffset(fieldNo);
+		this.fieldLength = layout.getLength(fieldNo);
+
+		String value = prefix.trim();
+		boolean unmatchable = value.length() > fieldLength;
+		this.pattern = new byte[value.length()];
+		for (int i = 0; i < pattern.length; i++) {
+			char c = value.charAt(i);
+			if (c > 0x00 && c < 0x80) {
+				pattern[i] = (byte) c;
+			} else if (c == '\uFFFD') {
+				pattern[i] = NON_ASCII;
+			} else {
+				unmatchable = true;
+			}
+		}
+
+		this.isUnmatchable = unmatchable;
+	}
+
+	/**
+	 * Determine if the prefix can't match any field value, so the matcher is
+	 * always false.
+	 * 
+	 * @return true if no field value can match.
+	 */
+	public boolean isUnmatchable() {
+		return isUnmatchable;
+	}
+
+	/**
+	 * Determine if the field value of a record begins with the prefix.
+	 * 
+	 * @param record record data.
+	 * @return true if the field value begins with the prefix; otherwise false.
+	 */
+	public boolean matches(Record record) {
+		if (isUnmatchable) {
+			return false;
+		}
+
+		byte[] storage = record.getStorage();
+		int start = record.getContentPosition() + fieldOffset;
+		int end = start + fieldLength;
+
+		// skip the leading space and control characters; the value ends at the
+		// first byte 0x00, which never matches a prefix byte.
+		while (start < end && storage[start] > 0x00 && storage[start] <= 0x20) {
+			start++;
+		}
+
+		if (end - start < pattern.length) {
+			return false;
+		}
+
+		for (int i = 0; i < pattern.length; i++) {
+			byte b = storage[start + i];
+			if (b != pattern[i] && !(pattern[i] == NON_ASCII && b < 0)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+}
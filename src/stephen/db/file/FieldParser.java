@@ -0,0 +1,31 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+/**
+ * Interface to parse a field value from the bytes of a record in place by the
+ * method <code>Record.parseField()</code>, so the field value is neither
+ * copied nor decoded into a string.
+ * 
+ * @see stephen.db.file.Record#parseField(int, FieldParser)
+ * @author Stephen Liu
+ * 
+ */
+public interface FieldParser {
+	/**
+	 * Parse a field value. The bytes are the same as the ones copied by
+	 * <code>Record.getBytes()</code>; they must not be changed.
+	 * 
+	 * @param value  byte array holding the field value.
+	 * @param offset the start position of the field value.
+	 * @param length the number of bytes of the field value.
+	 * @return the parsed value.
+	 * @throws IllegalArgumentException if the value can't be parsed.
+	 */
+	public long parse(byte[] value, int offset, int length);
+}
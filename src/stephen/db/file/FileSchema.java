@@ -22,6 +22,8 @@ public class FileSchema {
 
 	private Field[] fields;
 
+	private volatile RecordLayout layout;
+
 	/**
 	 * Create a FileScheam Object with max number of fields.
 	 * 
@@ -33,6 +35,8 @@ public class FileSchema {
 		for (int i = 0; i < fields.length; i++) {
 			fields[i] = new Field();
 		}
+
+		layout = new RecordLayout(fields);
 	}
 
 	/**
@@ -47,6 +51,8 @@ public class FileSchema {
 		for (Field field : fields) {
 			field.readFrom(input);
 		}
+
+		layout = new RecordLayout(fields);
 	}
 
 	/**
@@ -89,6 +95,7 @@ public class FileSchema {
 		}
 
 		this.fields = newFields;
+		this.layout = new RecordLayout(newFields);
 	}
 
 	/**
@@ -115,6 +122,7 @@ public class FileSchema {
 		}
 
 		this.fields = newFields;
+		this.layout = new RecordLayout(newFields);
 	}
 
 	/**
@@ -170,11 +178,7 @@ public class FileSchema {
 	 *                                is less than 0;
 	 */
 	public int getFieldLength(int fieldNo) throws FieldNotExistException {
-		if (fieldNo >= fields.length || fieldNo < 0) {
-			String errMsg = Messages.getString("FileSchema.nonExistFieldNo", new Object[] { fieldNo }); //$NON-NLS-1$
-			throw new FieldNotExistException(errMsg);
-		}
-		return fields[fieldNo].getFieldLength();
+		return layout.getLength(fieldNo);
 	}
 
 	/**
@@ -187,17 +191,7 @@ public class FileSchema {
 	 *                                is less than 0;
 	 */
 	public int getAllFieldsLengthBefore(int fieldNo) throws FieldNotExistException {
-		if (fieldNo >= fields.length || fieldNo < 0) {
-			String errMsg = Messages.getString("FileSchema.nonExistFieldNo", new Object[] { fieldNo }); //$NON-NLS-1$
-			throw new FieldNotExistException(errMsg);
-		}
-
-		int len = 0;
-		for (int i = 0; i < fieldNo; i++) {
-			len += fields[i].getFieldLength();
-		}
-
-		return len;
+		return layout.getOffset(fieldNo);
 	}
 
 	/**
@@ -206,12 +200,18 @@ public class FileSchema {
 	 * @return overall length of all fields
 	 */
 	public int getAllFieldsLength() {
-		int len = 0;
-		for (int i = 0; i < fields.length; i++) {
-			len += fields[i].getFieldLength();
-		}
+		return layout.getRecordLength();
+	}
 
-		return len;
+	/**
+	 * Get the storage layout of the record content, which holds the precomputed
+	 * offset and length of each field. A new layout object is created whenever
+	 * the fields in the schema are changed.
+	 * 
+	 * @return current record layout.
+	 */
+	public RecordLayout getLayout() {
+		return layout;
 	}
 
 }
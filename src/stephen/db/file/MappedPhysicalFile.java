@@ -0,0 +1,230 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import stephen.common.Constant;
+
+/**
+ * MappedPhysicalFile object maps the record data area of the data file into
+ * memory by <code>FileChannel.map</code>. Records are read from and written
+ * into the mapped region directly, so one record access costs a memory access
+ * instead of a file IO operation.
+ * <p>
+ * The mapped region always covers the record data area from
+ * <code>dataSectionStartPointer</code> to the end of file. It never maps
+ * beyond the end of file, because mapping a larger region would extend the data
+ * file with empty bytes which look like valid records. New records appended at
+ * the end of file are written by file IO operations and the mapped region grows
+ * to cover them the next time they are read.
+ * <p>
+ * One mapped buffer can't be larger than 2 GB, so the record data area is
+ * mapped by segments of <code>Constant.MAPPED_SEGMENT_SIZE</code> bytes(rounded
+ * down to whole records); only the last segment may be shorter, and it is
+ * mapped again when the data file grows. Data across the boundary of two
+ * segments is copied from/into both of them.
+ * <p>
+ * Reading threads don't lock the mapped region; each read takes the current
+ * segments once and works on them, and new segments are published to other
+ * threads only after they have been fully created.
+ * 
+ * @see stephen.db.file.PhysicalFile
+ * @author Stephen Liu
+ * 
+ */
+public class MappedPhysicalFile extends PhysicalFile {
+	// length of each mapped segment except the last one.
+	private final long segmentLength;
+
+	// the record data area covered by the mapped segments.
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+	// length of the record data area in the data file.
+	private volatile long dataLength;
+
+	/**
+	 * Creates a MappedPhysicalFile object mapping to an actual file.
+	 * 
+	 * @param filename the system-dependent file name
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public MappedPhysicalFile(String filename) throws IOException {
+		this(filename, new String[0]);
+	}
+
+	/**
+	 * Creates a MappedPhysicalFile object mapping to an actual file, which keeps
+	 * a checksum of the valid records over some fields.
+	 * 
+	 * @param filename       the system-dependent file name
+	 * @param checksumFields names of the fields covered by the checksum.
+	 * @throws IOException if an I/O error occurs.
+	 * @see stephen.db.file.PhysicalFile#getChecksum()
+	 */
+	public MappedPhysicalFile(String filename, String[] checksumFields) throws IOException {
+		super(filename, checksumFields);
+
+		// only whole records are mapped in one segment.
+		long maxLength = Math.min(Constant.MAPPED_SEGMENT_SIZE, Integer.MAX_VALUE);
+		segmentLength = Math.max(1, maxLength / getRecordStorageLength()) * getRecordStorageLength();
+
+		dataLength = getChannel().size() - getDataSectionStartPointer();
+		remap();
+	}
+
+	/**
+	 * Read bytes from the mapped segments; it falls back to file IO operation
+	 * when the data isn't mapped.
+	 * 
+	 * @see stephen.db.file.PhysicalFile#readBytes(long, byte[], int, int)
+	 */
+	@Override
+	protected int readBytes(long position, byte[] buffer, int offset, int length) throws IOException {
+		long relative = position - getDataSectionStartPointer();
+		if (relative >= dataLength) {
+			return 0;
+		}
+
+		int count = (int) Math.min(length, dataLength - relative);
+
+		// grow the mapped region for the records appended at the end of file.
+		MappedByteBuffer[] mapped = segments;
+		if (relative + count > getMappedLength(mapped)) {
+			mapped = remap();
+		}
+
+		if (relative + count > getMappedLength(mapped)) {
+			return super.readBytes(position, buffer, offset, length);
+		}
+
+		transfer(mapped, relative, buffer, offset, count, true);
+		return count;
+	}
+
+	/**
+	 * Write bytes into the mapped segments; the data beyond the end of mapped
+	 * region will be written by file IO operation.
+	 * 
+	 * @see stephen.db.file.PhysicalFile#writeBytes(long, byte[], int, int)
+	 */
+	@Override
+	protected void writeBytes(long position, byte[] buffer, int offset, int length) throws IOException {
+		long relative = position - getDataSectionStartPointer();
+
+		MappedByteBuffer[] mapped = segments;
+		if (relative + length <= getMappedLength(mapped)) {
+			transfer(mapped, relative, buffer, offset, length, false);
+			return;
+		}
+
+		super.writeBytes(position, buffer, offset, length);
+		extendDataLength(relative + length);
+	}
+
+	/**
+	 * Force the changes in the mapped segments to be stored on the storage
+	 * device as well as the records written by file IO operations.
+	 * 
+	 * @see stephen.db.file.PhysicalFile#force()
+	 */
+	@Override
+	public void force() throws IOException {
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+		super.force();
+	}
+
+	/**
+	 * Copy bytes between the mapped segments and a byte array.
+	 * 
+	 * @param mapped   the mapped segments.
+	 * @param relative the position relative to the start of record data area.
+	 * @param buffer   the byte array.
+	 * @param offset   the start offset in the byte array.
+	 * @param length   the number of bytes to be copied.
+	 * @param isRead   true if the bytes are copied from the mapped segments;
+	 *                 false if the bytes are copied into the mapped segments.
+	 */
+	private void transfer(MappedByteBuffer[] mapped, long relative, byte[] buffer, int offset, int length,
+			boolean isRead) {
+		while (length > 0) {
+			MappedByteBuffer segment = mapped[(int) (relative / segmentLength)];
+			int segmentOffset = (int) (relative % segmentLength);
+			int count = Math.min(length, segment.capacity() - segmentOffset);
+
+			if (isRead) {
+				segment.get(segmentOffset, buffer, offset, count);
+			} else {
+				segment.put(segmentOffset, buffer, offset, count);
+			}
+
+			relative += count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Get the length of the record data area covered by the mapped segments.
+	 * 
+	 * @param mapped the mapped segments.
+	 * @return the mapped length.
+	 */
+	private long getMappedLength(MappedByteBuffer[] mapped) {
+		if (mapped.length == 0) {
+			return 0;
+		}
+
+		return (mapped.length - 1) * segmentLength + mapped[mapped.length - 1].capacity();
+	}
+
+	/**
+	 * Map the record data area of the data file into memory again to cover the
+	 * records appended since the last mapping. The full segments which have been
+	 * mapped are kept.
+	 * 
+	 * @return the current mapped segments.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private synchronized MappedByteBuffer[] remap() throws IOException {
+		long mappedLength = getMappedLength(segments);
+		if (mappedLength == dataLength) {
+			return segments;
+		}
+
+		int count = (int) ((dataLength + segmentLength - 1) / segmentLength);
+		MappedByteBuffer[] mapped = Arrays.copyOf(segments, count);
+
+		for (int i = (int) (mappedLength / segmentLength); i < count; i++) {
+			long offset = i * segmentLength;
+			mapped[i] = getChannel().map(FileChannel.MapMode.READ_WRITE, getDataSectionStartPointer() + offset,
+					Math.min(segmentLength, dataLength - offset));
+		}
+
+		segments = mapped;
+		return mapped;
+	}
+
+	/**
+	 * Extend the length of the record data area after records are appended at the
+	 * end of file.
+	 * 
+	 * @param length the new length of the record data area.
+	 */
+	private synchronized void extendDataLength(long length) {
+		if (length > dataLength) {
+			dataLength = length;
+		}
+	}
+
+}
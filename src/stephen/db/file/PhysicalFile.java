@@ -7,22 +7,65 @@
 
 package stephen.db.file;
 
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+import stephen.common.Constant;
 import stephen.common.Messages;
 
 /**
  * PhysicalFile object is bound to a database data file in file system; It
  * encapsulates low level file IO operation to provide easily using API to
  * manipulate the data file.
+ * <p>
+ * All access to the record data area goes through the methods
+ * <code>readBytes</code> and <code>writeBytes</code>;subclasses can override
+ * them to provide a different storage access mechanism, such as
+ * <code>MappedPhysicalFile</code>.
+ * <p>
+ * The record data area is accessed by positional IO operations which don't
+ * share a file pointer, so reading records doesn't need to lock the whole data
+ * file and multiple threads can read records in parallel. Writes on the same
+ * record are ordered by a lock object shared by a stripe of records; a read on
+ * a single record only waits for the lock when the record is being written at
+ * the same time. Adding new records is serialized to allocate unique record
+ * numbers.
+ * <p>
+ * A record number can also be reserved by <code>allocateRecordNumber</code>
+ * without writing the record, so the new record is written only once by its
+ * writer, such as the commit of a <code>WriteAheadLog</code>. When a record is
+ * written beyond the end of data file, the slots skipped between are written
+ * as deleted records before it, so a slot which is reserved but not written
+ * yet, or never written at all, is never read as a valid record.
+ * <p>
+ * Single records are read through a <code>RecordBufferPool</code> which keeps
+ * the most used records in memory; records written into the data file are put
+ * into the pool as well. Traversing records by <code>scan</code> or
+ * <code>getRecordBlock</code> bypasses the pool.
+ * <p>
+ * The PhysicalFile object can keep a checksum of the valid records over some
+ * of their fields, typically the fields of the primary key. The checksum is
+ * calculated when the data file is opened and kept up to date by every write,
+ * so an index built from these fields can tell if it still matches the data
+ * file.
  * 
+ * @see stephen.db.file.MappedPhysicalFile
  * @author Stephen Liu
  * 
  */
-public class PhysicalFile {
+public class PhysicalFile implements Closeable {
 	private RandomAccessFile datafile;
+	private FileChannel channel;
 
 	private final FileHeader header;
 	private final FileSchema schema;
@@ -31,13 +74,67 @@ public class PhysicalFile {
 	private final long dataSectionStartPointer;
 	private final int recordStorageLength;
 
+	// Deleted record numbers which can be re-used by new records; the bit set
+	// tells if a record number in the stack is still deleted.
+	private final BitSet deletedRecords = new BitSet();
+	private final Deque<Integer> reusableRecordNumbers = new ArrayDeque<Integer>();
+
+	// number of records stored in data file, including deleted records.
+	private int recordCount;
+
+	// record numbers reserved for new records which haven't been written yet,
+	// and the record number next to the last reserved one.
+	private final BitSet reservedRecords = new BitSet();
+	private int nextRecordNumber;
+
+	// number of record slots which are written into data file, either by a
+	// record or as a deleted slot; it may be ahead of recordCount while
+	// records are being written.
+	private int initializedCount;
+
+	// Locks to order the writes on same record; each lock is shared by the
+	// records which have same remainder divided by the number of locks.
+	private final StampedLock[] recordLocks = new StampedLock[RECORD_LOCK_STRIPES];
+
+	private static final int RECORD_LOCK_STRIPES = 64;
+
+	// the maximum length of a byte array which can be allocated.
+	private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+	// the most used records cached in memory.
+	private final RecordBufferPool bufferPool;
+
+	// storage offsets and lengths of the fields covered by the checksum, and
+	// the sum of the checksums of all valid records.
+	private final int[] checksumOffsets;
+	private final int[] checksumLengths;
+	private final AtomicLong checksum = new AtomicLong();
+
 	/**
 	 * Creates a PhysicalFile object mapping to an actual file.
 	 * 
 	 * @param filename the system-dependent file name
 	 */
 	public PhysicalFile(String filename) throws IOException {
+		this(filename, new String[0]);
+	}
+
+	/**
+	 * Creates a PhysicalFile object mapping to an actual file, which keeps a
+	 * checksum of the valid records over some fields. The field names which
+	 * don't exist in the file schema are ignored.
+	 * 
+	 * @param filename       the system-dependent file name
+	 * @param checksumFields names of the fields covered by the checksum.
+	 * @see #getChecksum()
+	 */
+	public PhysicalFile(String filename, String[] checksumFields) throws IOException {
 		datafile = new RandomAccessFile(filename, "rw");
+		channel = datafile.getChannel();
+
+		for (int i = 0; i < recordLocks.length; i++) {
+			recordLocks[i] = new StampedLock();
+		}
 
 		try {
 			// read file header
@@ -74,6 +171,25 @@ public class PhysicalFile {
 		// Calculate the record length occupied in the disk
 		recordStorageLength = header.getRecordLength() + 1; // '1' is the flag
 		// of delete
+
+		bufferPool = new RecordBufferPool(Constant.RECORD_BUFFER_POOL_SIZE, recordStorageLength);
+
+		int count = 0;
+		int[] offsets = new int[checksumFields.length];
+		int[] lengths = new int[checksumFields.length];
+		for (String name : checksumFields) {
+			if (schema.isFieldExisted(name)) {
+				int fieldNo = schema.getFieldNo(name);
+				// skip the flag of delete.
+				offsets[count] = schema.getAllFieldsLengthBefore(fieldNo) + 1;
+				lengths[count] = schema.getFieldLength(fieldNo);
+				count++;
+			}
+		}
+		checksumOffsets = Arrays.copyOf(offsets, count);
+		checksumLengths = Arrays.copyOf(lengths, count);
+
+		loadDeletedRecords();
 	}
 
 	/**
@@ -84,16 +200,32 @@ public class PhysicalFile {
 	 *         doesn't exist.
 	 * @throws IOException if file format is incorrect.
 	 */
-	public synchronized Record getRecord(int recNo) throws IOException {
-		Record record = new Record(schema);
+	public Record getRecord(int recNo) throws IOException {
+		byte[] content = bufferPool.get(recNo);
+
+		if (content == null) {
+			content = new byte[recordStorageLength];
+
+			// read the record and cache it under the lock, so a record written at
+			// the same time will not be replaced by the old data in the pool.
+			StampedLock lock = getRecordLock(recNo);
+			long stamp = lock.readLock();
+			try {
+				int count = readBytes(getPosition(recNo), content, 0, content.length);
+				if (count < content.length) {
+					// end of file
+					return null;
+				}
 
-		moveTo(recNo);
-		try {
-			record.readFrom(datafile);
-			if (record.isDeleted()) {
-				record = null;
+				bufferPool.put(recNo, content);
+			} finally {
+				lock.unlockRead(stamp);
 			}
-		} catch (EOFException e) {
+		}
+
+		Record record = new Record(schema);
+		record.readFrom(content, 0);
+		if (record.isDeleted()) {
 			record = null;
 		}
 
@@ -113,35 +245,24 @@ public class PhysicalFile {
 	 * @return a multiple records object.
 	 * @throws IOException if data file format is wrong.
 	 */
-	public synchronized RecordBlock getRecordBlock(int fromRecNo, int numberOfRecord) throws IOException {
-		byte[] content = new byte[recordStorageLength * numberOfRecord];
-		moveTo(fromRecNo);
-
-		// fill in the byte array by multiple IO operations.
-		int offset = 0, len = content.length;
-		while (true) {
-			int count = datafile.read(content, offset, len);
-			if (count == -1) {
-				break;
-			}
+	public RecordBlock getRecordBlock(int fromRecNo, int numberOfRecord) throws IOException {
+		// one byte array can't hold more than Integer.MAX_VALUE bytes.
+		int maxNumberOfRecord = MAX_ARRAY_LENGTH / recordStorageLength;
+		if (numberOfRecord > maxNumberOfRecord) {
+			numberOfRecord = maxNumberOfRecord;
+		}
 
-			offset += count;
-			len -= count;
+		byte[] content = new byte[recordStorageLength * numberOfRecord];
 
-			// byteArray is full
-			if (len == 0) {
-				break;
-			}
-		}
+		int validLenght = readBytes(getPosition(fromRecNo), content, 0, content.length);
 
 		// nothing is read from datafile due to end of file
-		if (offset == 0) {
+		if (validLenght <= 0) {
 			return null;
 		}
 
 		// Cheap check of the data length; valid data length must be integer
 		// times of recordLen.
-		int validLenght = offset;
 		if (validLenght != ((validLenght / recordStorageLength) * recordStorageLength)) {
 			throw new IOException(Messages.getString("PhysicalFile.wrongRecordLength")); //$NON-NLS-1$
 		}
@@ -151,6 +272,66 @@ public class PhysicalFile {
 		return rb;
 	}
 
+	/**
+	 * Traverse all valid records from the record <code>fromRecNo</code> to the end
+	 * of file. Records are read into a reusable byte array block by block, and a
+	 * single read-only record view is moved over the byte array to visit each
+	 * record; no record data are copied or allocated per record.
+	 * <p>
+	 * The data file is not locked during the traversal, so other operations on
+	 * the data file can go ahead while the records are traversed.
+	 * 
+	 * @param fromRecNo the first record.
+	 * @param visitor   record visitor which will process each valid record.
+	 * @throws IOException if data file format is wrong.
+	 */
+	public void scan(int fromRecNo, RecordVisitor visitor) throws IOException {
+		scan(fromRecNo, Integer.MAX_VALUE, visitor);
+	}
+
+	/**
+	 * Traverse all valid records from the record <code>fromRecNo</code> to the
+	 * record before <code>toRecNo</code>, or to the end of file if it comes first.
+	 * Different ranges of records can be traversed by multiple threads at the same
+	 * time, each with its own visitor.
+	 * 
+	 * @param fromRecNo the first record.
+	 * @param toRecNo   the record after the last record.
+	 * @param visitor   record visitor which will process each valid record.
+	 * @throws IOException if data file format is wrong.
+	 * @see #scan(int, RecordVisitor)
+	 */
+	public void scan(int fromRecNo, int toRecNo, RecordVisitor visitor) throws IOException {
+		int blockSize = (int) Math.min(Constant.RECORD_FETCHSIZE, Math.max((long) toRecNo - fromRecNo, 0));
+		byte[] content = new byte[recordStorageLength * blockSize];
+		Record view = new Record(schema, content);
+
+		int recNo = fromRecNo;
+		while (recNo < toRecNo) {
+			int length = (int) Math.min(content.length, ((long) toRecNo - recNo) * recordStorageLength);
+			int validLenght = readBytes(getPosition(recNo), content, 0, length);
+
+			// Cheap check of the data length; valid data length must be integer
+			// times of recordLen.
+			if (validLenght != ((validLenght / recordStorageLength) * recordStorageLength)) {
+				throw new IOException(Messages.getString("PhysicalFile.wrongRecordLength")); //$NON-NLS-1$
+			}
+
+			for (int offset = 0; offset < validLenght; offset += recordStorageLength) {
+				view.moveTo(content, offset);
+				if (!view.isDeleted()) {
+					visitor.visit(recNo, view);
+				}
+				recNo++;
+			}
+
+			if (validLenght < length) {
+				// end of file
+				break;
+			}
+		}
+	}
+
 	/**
 	 * Update the record.
 	 * 
@@ -159,9 +340,8 @@ public class PhysicalFile {
 	 * @param record new record data.
 	 * @throws IOException if an I/O error occurs.
 	 */
-	public synchronized void updateRecord(int recNo, Record record) throws IOException {
-		moveTo(recNo);
-		record.writeTo(datafile);
+	public void updateRecord(int recNo, Record record) throws IOException {
+		writeRecord(recNo, record);
 	}
 
 	/**
@@ -171,11 +351,29 @@ public class PhysicalFile {
 	 * @return record number referred to the new record data.
 	 * @throws IOException if an I/O error occurs.
 	 */
-	public synchronized int add(Record record) throws IOException {
-		int recNo = getAvailableRecordNumber(0);
+	public int add(Record record) throws IOException {
+		int recNo = allocateRecordNumber();
+
+		writeRecord(recNo, record);
+		return recNo;
+	}
 
-		moveTo(recNo);
-		record.writeTo(datafile);
+	/**
+	 * Reserve the record number of a new record without writing the record. The
+	 * most recently deleted record will be re-used firstly; if no deleted
+	 * records exist, a record number after the end of data file will be
+	 * reserved. The record is written later by <code>updateRecord</code>; if it
+	 * is never written, the slot is found as a deleted record when the data
+	 * file is opened again.
+	 * 
+	 * @return the reserved record number.
+	 */
+	public synchronized int allocateRecordNumber() {
+		int recNo = getAvailableRecordNumber();
+		reservedRecords.set(recNo);
+		if (recNo >= nextRecordNumber) {
+			nextRecordNumber = recNo + 1;
+		}
 		return recNo;
 	}
 
@@ -185,17 +383,32 @@ public class PhysicalFile {
 	 * @param recNo the record number which will be delelted.
 	 * @throws IOException if an I/O error occurs.
 	 */
-	public synchronized void delete(int recNo) throws IOException {
+	public void delete(int recNo) throws IOException {
 		Record record = new Record(this.schema);
 
-		moveTo(recNo);
-		record.readFrom(datafile);
+		byte[] content = new byte[recordStorageLength];
+		long position = getPosition(recNo);
 
-		record.markDeleted();
+		StampedLock lock = getRecordLock(recNo);
+		long stamp = lock.writeLock();
+		try {
+			if (readBytes(position, content, 0, content.length) < content.length) {
+				throw new EOFException();
+			}
+			record.readFrom(content, 0);
+			long delta = -getChecksum(recNo, content, 0);
 
-		moveTo(recNo);
-		record.writeTo(datafile);
+			record.markDeleted();
 
+			record.writeTo(content, 0);
+			writeBytes(position, content, 0, content.length);
+			bufferPool.put(recNo, content);
+			checksum.addAndGet(delta);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+
+		updateRecordStatus(recNo, true);
 	}
 
 	/**
@@ -276,48 +489,350 @@ public class PhysicalFile {
 		return true;
 	}
 
+	/**
+	 * Get the length of the record storage area in data file, which includes
+	 * the flag of delete.
+	 * 
+	 * @return storage length of one record.
+	 */
+	public int getRecordStorageLength() {
+		return recordStorageLength;
+	}
+
+	/**
+	 * Get the number of records stored in data file, including deleted records.
+	 * 
+	 * @return number of records.
+	 */
+	public synchronized int getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Get the buffer pool which caches the most used records; its hit and miss
+	 * counters tell how well the pool works.
+	 * 
+	 * @return the record buffer pool.
+	 */
+	public RecordBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Get the checksum of all valid records over the fields given to the
+	 * constructor. It is 0 if no fields are covered.
+	 * <p>
+	 * The checksum of one record is derived from its record number and the
+	 * bytes of the covered fields, and the checksum of the data file is the sum
+	 * of them, so it changes if a covered field of a valid record changes, or a
+	 * record is added or deleted, and it is updated by every write without
+	 * traversing the data file.
+	 * 
+	 * @return the checksum of all valid records.
+	 */
+	public long getChecksum() {
+		return checksum.get();
+	}
+
+	/**
+	 * Force all records written into the data file to be stored on the storage
+	 * device.
+	 * 
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void force() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Close the data file. The PhysicalFile object can't be used any more after
+	 * it is closed.
+	 * 
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void close() throws IOException {
+		datafile.close();
+	}
+
+	/**
+	 * Get the file position where the record data area starts.
+	 * 
+	 * @return start position of the record data area.
+	 */
+	protected long getDataSectionStartPointer() {
+		return dataSectionStartPointer;
+	}
+
+	/**
+	 * Get the file channel of the data file.
+	 * 
+	 * @return the file channel bound to the data file.
+	 */
+	protected FileChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Read bytes from the data file at a specific file position. The method
+	 * tries to fill in the byte sub array by multiple IO operations until the
+	 * end of file is reached.
+	 * <p>
+	 * Subclasses can override this method together with <code>writeBytes</code>
+	 * to change the way to access the data file.
+	 * 
+	 * @param position file position where the data will be read.
+	 * @param buffer   byte array into which the data is read.
+	 * @param offset   start position of the byte sub array.
+	 * @param length   maximum number of bytes to read.
+	 * @return the number of bytes actually read; it is less than
+	 *         <code>length</code> if the end of file is reached.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected int readBytes(long position, byte[] buffer, int offset, int length) throws IOException {
+		return readFromFile(position, buffer, offset, length);
+	}
+
+	/**
+	 * Read bytes from the data file at a specific file position by file IO
+	 * operations.
+	 * 
+	 * @see #readBytes(long, byte[], int, int)
+	 */
+	private int readFromFile(long position, byte[] buffer, int offset, int length) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+
+		int total = 0;
+		while (total < length) {
+			int count = channel.read(bb, position + total);
+			if (count == -1) {
+				break;
+			}
+			total += count;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Write bytes into the data file at a specific file position; the data file
+	 * will be extended if the position is beyond the end of file.
+	 * 
+	 * @param position file position where the data will be written.
+	 * @param buffer   byte array from which the data is written.
+	 * @param offset   start position of the byte sub array.
+	 * @param length   number of bytes to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected void writeBytes(long position, byte[] buffer, int offset, int length) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+
+		int total = 0;
+		while (total < length) {
+			total += channel.write(bb, position + total);
+		}
+	}
+
+	/**
+	 * Save the record data into the storage area of a specific record, and keep
+	 * track of the deleted records for re-usage.
+	 * 
+	 * @param recNo  record number.
+	 * @param record record data.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private void writeRecord(int recNo, Record record) throws IOException {
+		byte[] content = new byte[record.length()];
+		record.writeTo(content, 0);
+
+		initializeRecords(recNo);
+
+		StampedLock lock = getRecordLock(recNo);
+		long stamp = lock.writeLock();
+		try {
+			long delta = getChecksum(recNo, content, 0);
+			if (checksumLengths.length > 0) {
+				// the checksum of the record which is overwritten.
+				byte[] old = bufferPool.get(recNo);
+				if (old == null) {
+					old = new byte[recordStorageLength];
+					if (readBytes(getPosition(recNo), old, 0, old.length) < old.length) {
+						old = null;
+					}
+				}
+				if (old != null) {
+					delta -= getChecksum(recNo, old, 0);
+				}
+			}
+
+			writeBytes(getPosition(recNo), content, 0, content.length);
+			bufferPool.put(recNo, content);
+			checksum.addAndGet(delta);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+
+		updateRecordStatus(recNo, record.isDeleted());
+	}
+
+	/**
+	 * Keep track of the deleted records for re-usage and the number of records
+	 * after a record is written.
+	 * 
+	 * @param recNo     record number.
+	 * @param isDeleted the record is deleted or not.
+	 */
+	private synchronized void updateRecordStatus(int recNo, boolean isDeleted) {
+		reservedRecords.clear(recNo);
+		if (isDeleted) {
+			if (!deletedRecords.get(recNo)) {
+				deletedRecords.set(recNo);
+				reusableRecordNumbers.push(recNo);
+			}
+		} else {
+			deletedRecords.clear(recNo);
+		}
+
+		if (recNo >= recordCount) {
+			recordCount = recNo + 1;
+		}
+	}
+
+	/**
+	 * Write the slots between the end of data file and a record which is going
+	 * to be written as deleted records, so the data file never holds a slot
+	 * which isn't written. The slots which aren't reserved can be re-used; the
+	 * reserved slots are overwritten by their records later.
+	 * 
+	 * @param recNo record number which is going to be written.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private synchronized void initializeRecords(int recNo) throws IOException {
+		if (recNo < initializedCount) {
+			return;
+		}
+
+		Record deletedRecord = new Record(this.schema);
+		deletedRecord.markDeleted();
+		byte[] content = new byte[recordStorageLength];
+		deletedRecord.writeTo(content, 0);
+
+		for (int i = initializedCount; i < recNo; i++) {
+			writeBytes(getPosition(i), content, 0, content.length);
+			bufferPool.put(i, content);
+
+			deletedRecords.set(i);
+			if (!reservedRecords.get(i)) {
+				reusableRecordNumbers.push(i);
+			}
+		}
+		initializedCount = recNo + 1;
+	}
+
 	/**
 	 * Look for an unused record number, which can be deleted or new record number.
+	 * The most recently deleted record will be re-used firstly; if no deleted
+	 * records exist, the record number next to the last reserved record will be
+	 * returned.
 	 * 
-	 * @param from start position to look for an unused record number.
 	 * @return an unused record number.
-	 * @throws IOException if an IO error occurs.
 	 */
-	private int getAvailableRecordNumber(int from) throws IOException {
-		// look for deleted record for re-usage
+	private int getAvailableRecordNumber() {
+		while (!reusableRecordNumbers.isEmpty()) {
+			int recNo = reusableRecordNumbers.pop();
 
-		// begin at the first record.
-		moveTo(from);
-		Record record = new Record(schema);
+			// skip the record which has been re-used since it was deleted.
+			if (deletedRecords.get(recNo) && !reservedRecords.get(recNo)) {
+				return recNo;
+			}
+		}
 
-		int recNo = from;
+		return Math.max(Math.max(recordCount, initializedCount), nextRecordNumber);
+	}
 
-		try {
-			while (true) {
-				record.readFrom(datafile);
-				if (record.isDeleted()) {
-					break;
+	/**
+	 * Traverse the flag of delete of all records in data file to count the
+	 * records and collect the deleted records for re-usage.
+	 * 
+	 * @throws IOException if an IO error occurs.
+	 */
+	private void loadDeletedRecords() throws IOException {
+		byte[] content = new byte[recordStorageLength * Constant.RECORD_FETCHSIZE];
+
+		int recNo = 0;
+		long sum = 0;
+		while (true) {
+			int count = readFromFile(getPosition(recNo), content, 0, content.length);
+
+			for (int offset = 0; offset + recordStorageLength <= count; offset += recordStorageLength) {
+				// the first byte of each record is the flag of delete.
+				if (content[offset] != 0x00) {
+					// the deleted record with lower record number will be
+					// re-used firstly.
+					deletedRecords.set(recNo);
+					reusableRecordNumbers.addLast(recNo);
+				} else {
+					sum += getChecksum(recNo, content, offset);
 				}
 				recNo++;
 			}
-		} catch (EOFException e) {
-			// end of file
+
+			if (count < content.length) {
+				// end of file
+				break;
+			}
 		}
 
-		return recNo;
+		recordCount = recNo;
+		initializedCount = recNo;
+		checksum.set(sum);
 	}
 
 	/**
-	 * Locate file pointer to the start of a specific record; It will be ready for
-	 * following writing or reading.
+	 * Calculate the checksum of one record over the covered fields.
 	 * 
-	 * @param recNo record number specifying a record.
-	 * @throws IOException if an IO errors occurs.
+	 * @param recNo   record number.
+	 * @param content byte array holding the record in its storage format.
+	 * @param offset  start position of the record in the byte array.
+	 * @return checksum of the record; 0 if the record is deleted.
+	 * @see #getChecksum()
+	 */
+	private long getChecksum(int recNo, byte[] content, int offset) {
+		if (checksumLengths.length == 0 || content[offset] != 0x00) {
+			return 0;
+		}
+
+		long hash = recNo;
+		for (int i = 0; i < checksumOffsets.length; i++) {
+			int from = offset + checksumOffsets[i];
+			for (int j = from; j < from + checksumLengths[i]; j++) {
+				hash = hash * 31 + content[j];
+			}
+		}
+
+		// spread the bits so the sum of similar records doesn't cancel out.
+		hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+		hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * Get the lock object which orders the writes on a specific record.
+	 * 
+	 * @param recNo record number.
+	 * @return the lock object shared by the stripe of records.
 	 */
-	private void moveTo(int recNo) throws IOException {
-		long position = dataSectionStartPointer + recNo * recordStorageLength;
+	private StampedLock getRecordLock(int recNo) {
+		return recordLocks[(recNo & Integer.MAX_VALUE) % recordLocks.length];
+	}
 
-		datafile.seek(position);
+	/**
+	 * Calculate the file position of the start of a specific record.
+	 * 
+	 * @param recNo record number specifying a record.
+	 * @return file position of the record.
+	 */
+	private long getPosition(int recNo) {
+		return dataSectionStartPointer + (long) recNo * recordStorageLength;
 	}
 
-}
\ No newline at end of file
+}
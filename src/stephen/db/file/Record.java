@@ -14,23 +14,45 @@ import java.util.Arrays;
 
 import stephen.common.ByteManipulator;
 import stephen.common.Constant;
+import stephen.common.Messages;
 
 /**
  * This class describes the record defined in data file; It provides APIs to
  * facilitate reading/writing each field value based on the schema.
+ * <p>
+ * A record object normally owns its data. A record object can also be a
+ * read-only view positioned over a byte array where multiple consecutive
+ * records are stored; the same view object is moved from one record to another
+ * to avoid copying each record data out of the byte array. Any attempt to change
+ * a view will cause an <code>UnsupportedOperationException</code>; the method
+ * <code>copy()</code> will help keep the record data after the view is moved.
  * 
  * @author Stephen Liu
  * 
  */
 public class Record {
 	/**
-	 * 0 -- valid record; 1 -- deleted record
+	 * The length of the flag of delete.
 	 */
-	private final byte[] isDeleted = new byte[1];
-	private final byte[] content;
+	private static final int DELETED_FLAG_LENGTH = 1;
+
+	/**
+	 * The record data which is composed by the flag of delete and the record
+	 * content. flag of delete: 0 -- valid record; 1 -- deleted record
+	 */
+	private byte[] storage;
+	private int offset;
+
+	private final int contentLength;
+	private final boolean isView;
 
 	private FileSchema schema;
 
+	/**
+	 * The layout of record content which is used to locate each field.
+	 */
+	private final RecordLayout layout;
+
 	/**
 	 * Create a record object bound to an schema object, which will be used to parse
 	 * the record content.
@@ -39,7 +61,44 @@ public class Record {
 	 */
 	protected Record(FileSchema schema) {
 		this.schema = schema;
-		content = new byte[this.schema.getAllFieldsLength()];
+		layout = this.schema.getLayout();
+		contentLength = layout.getRecordLength();
+		storage = new byte[DELETED_FLAG_LENGTH + contentLength];
+		offset = 0;
+		isView = false;
+	}
+
+	/**
+	 * Create a read-only record view bound to an schema object. The view has to be
+	 * positioned over a record by the method <code>moveTo()</code> before it is
+	 * used.
+	 * 
+	 * @param schema data file schema object.
+	 * @param source byte array where the records data are stored.
+	 */
+	Record(FileSchema schema, byte[] source) {
+		this.schema = schema;
+		layout = this.schema.getLayout();
+		contentLength = layout.getRecordLength();
+		storage = source;
+		offset = 0;
+		isView = true;
+	}
+
+	/**
+	 * Position the record view over the record starting at a specific offset of
+	 * the byte array.
+	 * 
+	 * @param source byte array where the records data are stored.
+	 * @param offset the start position of the record.
+	 */
+	void moveTo(byte[] source, int offset) {
+		if (!isView) {
+			throw new UnsupportedOperationException(Messages.getString("Record.notView")); //$NON-NLS-1$
+		}
+
+		this.storage = source;
+		this.offset = offset;
 	}
 
 	/**
@@ -51,8 +110,9 @@ public class Record {
 	 *                      bytes.
 	 */
 	protected void readFrom(DataInput input) throws IOException {
-		input.readFully(isDeleted);
-		input.readFully(content);
+		checkWritable();
+
+		input.readFully(storage, offset, length());
 	}
 
 	/**
@@ -62,10 +122,19 @@ public class Record {
 	 * @param offset the start position of reading the record data.
 	 */
 	protected void readFrom(byte[] source, int offset) {
-		int index = offset;
-		System.arraycopy(source, index, isDeleted, 0, isDeleted.length);
-		index += isDeleted.length;
-		System.arraycopy(source, index, content, 0, content.length);
+		checkWritable();
+
+		System.arraycopy(source, offset, storage, this.offset, length());
+	}
+
+	/**
+	 * Write the record into byte array.
+	 * 
+	 * @param dest   byte array where the record data will be written.
+	 * @param offset the start position of writing the record data.
+	 */
+	protected void writeTo(byte[] dest, int offset) {
+		System.arraycopy(storage, this.offset, dest, offset, length());
 	}
 
 	/**
@@ -77,15 +146,16 @@ public class Record {
 	 *                     cannot be opened for reading
 	 */
 	public void writeTo(DataOutput output) throws IOException {
-		output.write(isDeleted);
-		output.write(content);
+		output.write(storage, offset, length());
 	}
 
 	/**
 	 * Mark the record be deleted
 	 */
 	public void markDeleted() {
-		isDeleted[0] = 0x01;
+		checkWritable();
+
+		storage[offset] = 0x01;
 	}
 
 	/**
@@ -94,7 +164,7 @@ public class Record {
 	 * @return true if the record is valid; false if record is invalid.
 	 */
 	public boolean isDeleted() {
-		return (isDeleted[0] == 0x00 ? false : true);
+		return (storage[offset] == 0x00 ? false : true);
 
 	}
 
@@ -106,16 +176,19 @@ public class Record {
 	 * @param data data string array
 	 */
 	public void setData(String[] data) {
-		int fieldsNumber = schema.getFieldsNumber();
+		checkWritable();
+
+		int fieldsNumber = layout.getFieldsNumber();
 		int count = (data.length < fieldsNumber ? data.length : fieldsNumber);
+		int contentOffset = offset + DELETED_FLAG_LENGTH;
 
 		try {
 			for (int i = 0; i < count; i++) {
-				int offset = schema.getAllFieldsLengthBefore(i);
-				int fieldlen = schema.getFieldLength(i);
+				int fieldOffset = contentOffset + layout.getOffset(i);
+				int fieldlen = layout.getLength(i);
 
 				// clear field
-				Arrays.fill(content, offset, offset + fieldlen, (byte) 0x00);
+				Arrays.fill(storage, fieldOffset, fieldOffset + fieldlen, (byte) 0x00);
 
 				// copy
 				byte[] src = ByteManipulator.stringToBytes(data[i], Constant.CHARSET);
@@ -123,7 +196,7 @@ public class Record {
 					continue;
 
 				int copyLen = (src.length < fieldlen ? src.length : fieldlen);
-				System.arraycopy(src, 0, content, offset, copyLen);
+				System.arraycopy(src, 0, storage, fieldOffset, copyLen);
 
 			}
 		} catch (FieldNotExistException e) {
@@ -143,13 +216,67 @@ public class Record {
 	 *                                is less than 0;
 	 */
 	public String getString(int fieldNo) throws FieldNotExistException {
-		int fieldLen = this.schema.getFieldLength(fieldNo);
-		int offset = this.schema.getAllFieldsLengthBefore(fieldNo);
+		int fieldLen = layout.getLength(fieldNo);
+		int fieldOffset = offset + DELETED_FLAG_LENGTH + layout.getOffset(fieldNo);
 
-		String str = ByteManipulator.bytesToString(content, offset, fieldLen, Constant.CHARSET);
+		String str = ByteManipulator.bytesToString(storage, fieldOffset, fieldLen, Constant.CHARSET);
 		return str;
 	}
 
+	/**
+	 * Copy the bytes of the field value with the fieldNo into a byte array. The
+	 * bytes are the same as the string value returned by <code>getString()</code>:
+	 * the value ends at the first byte 0x00 and the leading and trailing bytes not
+	 * greater than 0x20 are not copied.
+	 * 
+	 * @param fieldNo field No.
+	 * @param dest    byte array where the field value will be copied.
+	 * @param offset  the start position of copying the field value.
+	 * @return the number of bytes copied.
+	 * @throws FieldNotExistException if fieldNo is greater than or equal to the max
+	 *                                number of fields in the schema, or if fieldNo
+	 *                                is less than 0;
+	 */
+	public int getBytes(int fieldNo, byte[] dest, int offset) throws FieldNotExistException {
+		int end = getValueEnd(fieldNo);
+		int start = getValueStart(fieldNo, end);
+
+		System.arraycopy(storage, start, dest, offset, end - start);
+		return end - start;
+	}
+
+	/**
+	 * Parse the field value with the fieldNo from the record data in place. The
+	 * parser gets the same bytes as the ones copied by <code>getBytes()</code>.
+	 * 
+	 * @param fieldNo field No.
+	 * @param parser  parser of the field value.
+	 * @return the value returned by the parser.
+	 * @throws FieldNotExistException   if fieldNo is greater than or equal to the
+	 *                                  max number of fields in the schema, or if
+	 *                                  fieldNo is less than 0;
+	 * @throws IllegalArgumentException if the parser can't parse the value.
+	 */
+	public long parseField(int fieldNo, FieldParser parser) throws FieldNotExistException {
+		int end = getValueEnd(fieldNo);
+		int start = getValueStart(fieldNo, end);
+
+		return parser.parse(storage, start, end - start);
+	}
+
+	/**
+	 * Get the length of the field with the fieldNo.
+	 * 
+	 * @param fieldNo field No.
+	 * @return the field length.
+	 * @throws FieldNotExistException if fieldNo is greater than or equal to the max
+	 *                                number of fields in the schema, or if fieldNo
+	 *                                is less than 0;
+	 */
+	public int getFieldLength(int fieldNo) throws FieldNotExistException {
+		return layout.getLength(fieldNo);
+	}
+
 	/**
 	 * Get all columns values in the record.
 	 * 
@@ -159,7 +286,7 @@ public class Record {
 	 *                                schema.
 	 */
 	public String[] getColumns() throws FieldNotExistException {
-		int colCount = schema.getFieldsNumber();
+		int colCount = layout.getFieldsNumber();
 		String[] cols = new String[colCount];
 
 		for (int i = 0; i < cols.length; i++) {
@@ -169,13 +296,108 @@ public class Record {
 		return cols;
 	}
 
+	/**
+	 * Get a record object which owns a copy of the record data. It is used to keep
+	 * the record data of a record view which will be moved to other records.
+	 * 
+	 * @return a new record object with the same record data.
+	 */
+	public Record copy() {
+		Record record = new Record(schema);
+		writeTo(record.storage, 0);
+		return record;
+	}
+
+	/**
+	 * Determine if the record is a read-only view over a byte array shared with
+	 * other records.
+	 * 
+	 * @return true if the record is a view; otherwise false.
+	 */
+	public boolean isView() {
+		return isView;
+	}
+
 	/**
 	 * Get the storage size of the record occupied on the disk
 	 * 
 	 * @return the storage size of the record
 	 */
 	public int length() {
-		return (isDeleted.length + content.length);
+		return (DELETED_FLAG_LENGTH + contentLength);
+	}
+
+	/**
+	 * Get the end position of the field value with the fieldNo in the record
+	 * data; the value ends at the first byte 0x00, and the trailing bytes not
+	 * greater than 0x20 are excluded.
+	 */
+	private int getValueEnd(int fieldNo) {
+		int start = getContentPosition() + layout.getOffset(fieldNo);
+		int end = start + layout.getLength(fieldNo);
+
+		for (int i = start; i < end; i++) {
+			if (storage[i] == 0x00) {
+				end = i;
+				break;
+			}
+		}
+
+		while (end > start && storage[end - 1] >= 0 && storage[end - 1] <= 0x20) {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * Get the start position of the field value with the fieldNo in the record
+	 * data; the leading bytes not greater than 0x20 are excluded.
+	 */
+	private int getValueStart(int fieldNo, int end) {
+		int start = getContentPosition() + layout.getOffset(fieldNo);
+
+		while (start < end && storage[start] >= 0 && storage[start] <= 0x20) {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * Get the layout of record content.
+	 * 
+	 * @return record layout.
+	 */
+	RecordLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Get the byte array where the record data is stored; it may be shared with
+	 * other records if the record is a view.
+	 * 
+	 * @return the byte array holding the record data.
+	 */
+	byte[] getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Get the start position of the record content, which follows the flag of
+	 * delete, in the byte array returned by <code>getStorage()</code>.
+	 * 
+	 * @return start position of the record content.
+	 */
+	int getContentPosition() {
+		return offset + DELETED_FLAG_LENGTH;
+	}
+
+	/**
+	 * Stop changing the record if the record is a read-only view.
+	 */
+	private void checkWritable() {
+		if (isView) {
+			throw new UnsupportedOperationException(Messages.getString("Record.readOnlyView")); //$NON-NLS-1$
+		}
 	}
 
 }
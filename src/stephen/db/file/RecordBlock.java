@@ -28,6 +28,7 @@ public class RecordBlock implements Iterable<Record> {
 	private int offset;
 	private int length;
 	private FileSchema schema;
+	private int recordStorageLength;
 
 	/**
 	 * Create a RecordBlock object based on byte sub array.
@@ -43,6 +44,8 @@ public class RecordBlock implements Iterable<Record> {
 		this.offset = offset;
 		this.length = length;
 		this.schema = schema;
+		this.recordStorageLength = schema.getLayout().getRecordLength() + 1; // '1' is the
+		// flag of delete
 	}
 
 	/**
@@ -66,7 +69,7 @@ public class RecordBlock implements Iterable<Record> {
 		 * @see Iterator#hasNext().
 		 */
 		public boolean hasNext() {
-			int lastRecordStartPointer = (offset + length) - (schema.getAllFieldsLength() + 1);
+			int lastRecordStartPointer = (offset + length) - recordStorageLength;
 
 			if (index <= lastRecordStartPointer) {
 				return true;
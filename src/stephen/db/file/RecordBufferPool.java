@@ -0,0 +1,172 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RecordBufferPool object keeps the most used records of a data file in
+ * memory, so reading a hot record doesn't need to access the data file.
+ * <p>
+ * The number of cached records is limited by a memory budget. When the pool is
+ * full, a cached record is evicted by the CLOCK algorithm: each cached record
+ * has a reference flag which is set when the record is read; the clock hand goes
+ * round the cached records, clearing the reference flags, and evicts the first
+ * record whose reference flag has already been cleared.
+ * <p>
+ * The pool is write-through: a record written into the data file is put into
+ * the pool at the same time, so the pool always keeps the latest record data.
+ * The record data cached in the pool are never changed; a new record data
+ * replaces the old one. Reading the pool doesn't need any lock, only putting
+ * records into the pool is serialized.
+ * 
+ * @see stephen.db.file.PhysicalFile
+ * @author Stephen Liu
+ * 
+ */
+public class RecordBufferPool {
+	private final ConcurrentHashMap<Integer, Frame> frames;
+	private final Frame[] slots;
+	private int clockHand;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Creates a RecordBufferPool object.
+	 * 
+	 * @param memoryBudget        the maximum number of bytes of the cached records.
+	 * @param recordStorageLength storage length of one record.
+	 */
+	public RecordBufferPool(long memoryBudget, int recordStorageLength) {
+		int capacity = (int) Math.min(memoryBudget / recordStorageLength, Integer.MAX_VALUE - 8);
+
+		slots = new Frame[capacity];
+		frames = new ConcurrentHashMap<Integer, Frame>(Math.max(capacity, 1));
+	}
+
+	/**
+	 * Get the cached data of a record.
+	 * 
+	 * @param recNo record number.
+	 * @return record data including the flag of delete; null if the record isn't
+	 *         cached. The returned byte array must not be changed.
+	 */
+	public byte[] get(int recNo) {
+		Frame frame = frames.get(recNo);
+		if (frame == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+
+		frame.isReferenced = true;
+		hitCount.incrementAndGet();
+		return frame.content;
+	}
+
+	/**
+	 * Put the data of a record into the pool; the old data of the record will be
+	 * replaced. The byte array must not be changed after it is put into the pool.
+	 * 
+	 * @param recNo   record number.
+	 * @param content record data including the flag of delete.
+	 */
+	public synchronized void put(int recNo, byte[] content) {
+		if (slots.length == 0) {
+			return;
+		}
+
+		Frame frame = frames.get(recNo);
+		int slot = (frame == null ? evict() : frame.slot);
+
+		frame = new Frame(recNo, slot, content);
+		slots[slot] = frame;
+		frames.put(recNo, frame);
+	}
+
+	/**
+	 * Get the number of records read from the pool.
+	 * 
+	 * @return hit count.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Get the number of records which were not found in the pool.
+	 * 
+	 * @return miss count.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Get the maximum number of records which can be cached.
+	 * 
+	 * @return capacity of the pool.
+	 */
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Get the number of cached records.
+	 * 
+	 * @return number of cached records.
+	 */
+	public int size() {
+		return frames.size();
+	}
+
+	/**
+	 * Look for a free slot by the clock hand; the record in the slot is evicted
+	 * if the slot is occupied.
+	 * 
+	 * @return slot index.
+	 */
+	private int evict() {
+		while (true) {
+			int slot = clockHand;
+			clockHand = (clockHand + 1) % slots.length;
+
+			Frame frame = slots[slot];
+			if (frame == null) {
+				return slot;
+			}
+
+			if (frame.isReferenced) {
+				// give the record a second chance.
+				frame.isReferenced = false;
+			} else {
+				frames.remove(frame.recNo);
+				slots[slot] = null;
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * One cached record.
+	 */
+	private static class Frame {
+		private final int recNo;
+		private final int slot;
+		private final byte[] content;
+		private volatile boolean isReferenced;
+
+		private Frame(int recNo, int slot, byte[] content) {
+			this.recNo = recNo;
+			this.slot = slot;
+			this.content = content;
+		}
+	}
+
+}
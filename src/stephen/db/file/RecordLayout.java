@@ -0,0 +1,102 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+import stephen.common.Messages;
+
+/**
+ * This class describes the storage layout of the record content defined by
+ * the file schema. The offset and the length of each field are computed once
+ * when the layout is created, so that locating a field in the record content
+ * doesn't need to traverse the fields in the schema.
+ * <p>
+ * The layout object is immutable; <code>FileSchema</code> object creates a new
+ * layout whenever its fields are changed.
+ * 
+ * @see stephen.db.file.FileSchema#getLayout()
+ * @author Stephen Liu
+ * 
+ */
+public final class RecordLayout {
+	private final int[] offsets;
+	private final int[] lengths;
+	private final int recordLength;
+
+	/**
+	 * Create a layout object for a list of fields.
+	 * 
+	 * @param fields fields in file schema.
+	 */
+	RecordLayout(Field[] fields) {
+		offsets = new int[fields.length];
+		lengths = new int[fields.length];
+
+		int len = 0;
+		for (int i = 0; i < fields.length; i++) {
+			offsets[i] = len;
+			lengths[i] = fields[i].getFieldLength();
+			len += lengths[i];
+		}
+
+		recordLength = len;
+	}
+
+	/**
+	 * Get the count of all fields in the layout.
+	 * 
+	 * @return count of all fields.
+	 */
+	public int getFieldsNumber() {
+		return offsets.length;
+	}
+
+	/**
+	 * Get the start position of a field in the record content.
+	 * 
+	 * @param fieldNo field sequence number in the schema.
+	 * @return the sum of all field lengths before the field.
+	 * @throws FieldNotExistException if fieldNo is greater than or equal to the max
+	 *                                number of fields in the schema, or if fieldNo
+	 *                                is less than 0;
+	 */
+	public int getOffset(int fieldNo) throws FieldNotExistException {
+		checkFieldNo(fieldNo);
+		return offsets[fieldNo];
+	}
+
+	/**
+	 * Get the length of a field.
+	 * 
+	 * @param fieldNo field sequence number in the schema.
+	 * @return the field length.
+	 * @throws FieldNotExistException if fieldNo is greater than or equal to the max
+	 *                                number of fields in the schema, or if fieldNo
+	 *                                is less than 0;
+	 */
+	public int getLength(int fieldNo) throws FieldNotExistException {
+		checkFieldNo(fieldNo);
+		return lengths[fieldNo];
+	}
+
+	/**
+	 * Get the sum of all fields length.
+	 * 
+	 * @return overall length of all fields.
+	 */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	private void checkFieldNo(int fieldNo) throws FieldNotExistException {
+		if (fieldNo >= offsets.length || fieldNo < 0) {
+			String errMsg = Messages.getString("FileSchema.nonExistFieldNo", new Object[] { fieldNo }); //$NON-NLS-1$
+			throw new FieldNotExistException(errMsg);
+		}
+	}
+
+}
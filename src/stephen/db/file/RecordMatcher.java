@@ -0,0 +1,149 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+/**
+ * RecordMatcher object filters records by search criteria. The criteria are
+ * encoded into bytes once, and they are compared with the field bytes in the
+ * record data directly; no strings are created for the field values.
+ * <p>
+ * The field value is compared in the same way as it is read by
+ * <code>Record.getString()</code> and then trimmed: it ends at the first byte
+ * 0x00, and the leading and trailing bytes not greater than 0x20(space and
+ * control characters) are ignored. A byte not in US-ASCII charset is read as the
+ * character U+FFFD, so the character U+FFFD in the criteria matches any of
+ * them, and other characters not in US-ASCII charset never match.
+ * <p>
+ * RecordMatcher object is immutable and can be shared by multiple threads.
+ * 
+ * @author Stephen Liu
+ * 
+ */
+public final class RecordMatcher {
+	/**
+	 * Encoded byte of the character U+FFFD, which matches any byte not in
+	 * US-ASCII charset.
+	 */
+	private static final byte NON_ASCII = (byte) 0x80;
+
+	// encoded criteria; null matches any field value.
+	private final byte[][] patterns;
+
+	// the criteria can't match any record.
+	private final boolean isUnmatchable;
+
+	private final boolean exactMatch;
+
+	/**
+	 * Creates a RecordMatcher object. If exactMatch is true, the record must
+	 * exactly match non-null values in criteria, otherwise, the record values must
+	 * begin with corresponding criteria[n]. The criteria values are trimmed before
+	 * they are compared.
+	 * 
+	 * @param criteria   search condition.
+	 * @param exactMatch exactly match or not.
+	 */
+	public RecordMatcher(String[] criteria, boolean exactMatch) {
+		this.exactMatch = exactMatch;
+		this.patterns = new byte[criteria.length][];
+
+		boolean unmatchable = false;
+		for (int n = 0; n < criteria.length; n++) {
+			if (criteria[n] == null) {
+				continue;
+			}
+
+			String criteriaItem = criteria[n].trim();
+			byte[] pattern = new byte[criteriaItem.length()];
+			for (int i = 0; i < pattern.length; i++) {
+				char c = criteriaItem.charAt(i);
+				if (c < 0x80) {
+					pattern[i] = (byte) c;
+				} else if (c == '\uFFFD') {
+					pattern[i] = NON_ASCII;
+				} else {
+					unmatchable = true;
+				}
+			}
+			patterns[n] = pattern;
+		}
+
+		this.isUnmatchable = unmatchable;
+	}
+
+	/**
+	 * Determine if a record matches the criteria.
+	 * 
+	 * @param record record data.
+	 * @return true if the record matches the criteria; otherwise false.
+	 */
+	public boolean matches(Record record) {
+		if (isUnmatchable) {
+			return false;
+		}
+
+		RecordLayout layout = record.getLayout();
+		byte[] storage = record.getStorage();
+
+		for (int n = 0; n < patterns.length; n++) {
+			byte[] pattern = patterns[n];
+			if (pattern == null) { // A null value matches any field value
+				continue;
+			}
+
+			if (n >= layout.getFieldsNumber()) {
+				return false;
+			}
+
+			int start = record.getContentPosition() + layout.getOffset(n);
+			int end = start + layout.getLength(n);
+
+			// the value ends at the first byte 0x00.
+			for (int i = start; i < end; i++) {
+				if (storage[i] == 0x00) {
+					end = i;
+					break;
+				}
+			}
+
+			// trim the space and control characters.
+			while (start < end && isTrimmed(storage[start])) {
+				start++;
+			}
+			while (end > start && isTrimmed(storage[end - 1])) {
+				end--;
+			}
+
+			int length = end - start;
+			if (exactMatch ? length != pattern.length : length < pattern.length) {
+				return false;
+			}
+
+			for (int i = 0; i < pattern.length; i++) {
+				byte b = storage[start + i];
+				if (b != pattern[i] && !(pattern[i] == NON_ASCII && b < 0)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Determine if a byte is trimmed from the field value, the same as
+	 * <code>String.trim()</code> does.
+	 * 
+	 * @param b a byte in the field value.
+	 * @return true if the byte is a space or control character.
+	 */
+	private static boolean isTrimmed(byte b) {
+		return b >= 0 && b <= 0x20;
+	}
+
+}
@@ -0,0 +1,28 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+/**
+ * Interface to process each valid record when traversing the records in data
+ * file by the method <code>PhysicalFile.scan()</code>.
+ * 
+ * @see stephen.db.file.PhysicalFile#scan(int, RecordVisitor)
+ * @author Stephen Liu
+ * 
+ */
+public interface RecordVisitor {
+	/**
+	 * Process one valid record. The record object is a read-only view which will
+	 * be moved to the next record after this method returns; use
+	 * <code>Record.copy()</code> to keep the record data.
+	 * 
+	 * @param recNo  record number.
+	 * @param record record data view.
+	 */
+	public void visit(int recNo, Record record);
+}
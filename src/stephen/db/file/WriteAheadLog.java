@@ -0,0 +1,361 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import stephen.common.Constant;
+import stephen.common.Messages;
+
+/**
+ * WriteAheadLog object makes the changes on records durable before they are
+ * applied into the data file. Each committed change is appended into a log file
+ * as the new image of the record, and it is applied into the data file only
+ * after the log file has been forced to the storage device; the data file itself
+ * is not forced on each commit.
+ * <p>
+ * Concurrent commits are forced together(group commit): the first committing
+ * thread forces the log file for all log entries appended so far, while other
+ * committing threads append their log entries and wait; one of them forces the
+ * log file for all of them once the current force operation completes. So one
+ * force operation is shared by many commits under concurrent load.
+ * <p>
+ * A background thread periodically forces the data file to the storage device
+ * and then empties the log file(checkpoint); a <code>CheckpointListener</code>
+ * is notified after each periodic checkpoint. When the log file is opened, all
+ * complete log entries in it are applied into the data file again, so changes
+ * committed before a crash are recovered; incomplete log entries at the end of
+ * the log file were never committed and are discarded.
+ * <p>
+ * Format of one log entry:<br>
+ * record number(4 bytes) + length of record image(4 bytes) + record image +
+ * CRC32 checksum of the previous parts(8 bytes).
+ * 
+ * @see stephen.db.file.PhysicalFile
+ * @author Stephen Liu
+ * 
+ */
+public class WriteAheadLog {
+	private static Logger logger = Logger.getLogger(WriteAheadLog.class.getName());
+
+	private static final int ENTRY_HEADER_LENGTH = 8;
+	private static final int ENTRY_CHECKSUM_LENGTH = 8;
+
+	private final PhysicalFile pfile;
+	private final String filename;
+
+	private RandomAccessFile logfile;
+	private FileChannel channel;
+
+	// end position of the log entries written into the log file.
+	private long writtenPosition;
+
+	// end position of the log entries forced to the storage device.
+	private long durablePosition;
+
+	// a thread is forcing the log file to the storage device.
+	private boolean isFlushing;
+
+	// Commits hold the read lock until their changes are applied into the data
+	// file; checkpoint holds the write lock to empty the log file.
+	private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+	private Thread checkpointer;
+
+	private volatile CheckpointListener checkpointListener;
+
+	/**
+	 * Creates a WriteAheadLog object for a data file; the changes left in the log
+	 * file are applied into the data file before the object is created.
+	 * 
+	 * @param pfile    the data file where the committed changes are applied.
+	 * @param filename the system-dependent log file name.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public WriteAheadLog(PhysicalFile pfile, String filename) throws IOException {
+		this.pfile = pfile;
+		this.filename = filename;
+
+		logfile = new RandomAccessFile(filename, "rw");
+		channel = logfile.getChannel();
+
+		recover();
+
+		checkpointer = new Thread(new Checkpointer(Constant.WAL_CHECKPOINT_INTERVAL));
+		checkpointer.setDaemon(true);
+		checkpointer.start();
+	}
+
+	/**
+	 * Commit the new image of a record. When the method returns, the change is
+	 * stored on the storage device and has been applied into the data file.
+	 * <p>
+	 * The caller has to make sure that no other thread commits the same record at
+	 * the same time.
+	 * 
+	 * @param recNo  record number.
+	 * @param record the new image of the record; a deleted record deletes the
+	 *               record from the data file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void commit(int recNo, Record record) throws IOException {
+		byte[] entry = encode(recNo, record);
+
+		checkpointLock.readLock().lock();
+		try {
+			long end = append(entry);
+			waitForDurable(end);
+
+			pfile.updateRecord(recNo, record);
+		} finally {
+			checkpointLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Force the data file to the storage device and empty the log file.
+	 * 
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void checkpoint() throws IOException {
+		checkpointLock.writeLock().lock();
+		try {
+			synchronized (this) {
+				if (writtenPosition == 0) {
+					return;
+				}
+
+				pfile.force();
+
+				channel.truncate(0);
+				channel.force(false);
+				writtenPosition = 0;
+				durablePosition = 0;
+			}
+		} finally {
+			checkpointLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Set the listener which is notified after each periodic checkpoint.
+	 * 
+	 * @param listener checkpoint listener.
+	 */
+	public void setCheckpointListener(CheckpointListener listener) {
+		this.checkpointListener = listener;
+	}
+
+	/**
+	 * Append a log entry at the end of the log file.
+	 * 
+	 * @param entry log entry.
+	 * @return the end position of the log entry.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private synchronized long append(byte[] entry) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(entry);
+		while (bb.hasRemaining()) {
+			channel.write(bb, writtenPosition + bb.position());
+		}
+
+		writtenPosition += entry.length;
+		return writtenPosition;
+	}
+
+	/**
+	 * Wait until the log file is forced to the storage device up to a specific
+	 * position. If no other thread is forcing the log file, the current thread
+	 * forces it for all the log entries appended so far.
+	 * 
+	 * @param end the position to which the log file has to be forced.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private void waitForDurable(long end) throws IOException {
+		long target;
+
+		synchronized (this) {
+			while (durablePosition < end && isFlushing) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// ignore; the log entry has been appended and has to be
+					// forced before the change is applied.
+				}
+			}
+
+			if (durablePosition >= end) {
+				return;
+			}
+
+			isFlushing = true;
+			target = writtenPosition;
+		}
+
+		boolean isForced = false;
+		try {
+			channel.force(false);
+			isForced = true;
+		} finally {
+			synchronized (this) {
+				if (isForced) {
+					durablePosition = target;
+				}
+				isFlushing = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Apply all complete log entries in the log file into the data file, and then
+	 * empty the log file.
+	 * 
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private void recover() throws IOException {
+		long length = channel.size();
+		int imageLength = pfile.getRecordStorageLength();
+		byte[] entry = new byte[ENTRY_HEADER_LENGTH + imageLength + ENTRY_CHECKSUM_LENGTH];
+
+		long position = 0;
+		int count = 0;
+		while (position + entry.length <= length) {
+			ByteBuffer bb = ByteBuffer.wrap(entry);
+			while (bb.hasRemaining()) {
+				if (channel.read(bb, position + bb.position()) == -1) {
+					break;
+				}
+			}
+
+			bb.rewind();
+			int recNo = bb.getInt();
+			int recordLength = bb.getInt();
+			long checksum = bb.getLong(entry.length - ENTRY_CHECKSUM_LENGTH);
+			if (recordLength != imageLength || checksum != checksum(entry, entry.length - ENTRY_CHECKSUM_LENGTH)) {
+				break;
+			}
+
+			Record record = pfile.getEmptyRecord();
+			record.readFrom(entry, ENTRY_HEADER_LENGTH);
+			pfile.updateRecord(recNo, record);
+
+			position += entry.length;
+			count++;
+		}
+
+		if (position < length) {
+			logger.warning(Messages.getString("WriteAheadLog.discardedEntries", //$NON-NLS-1$
+					new Object[] { length - position, filename }));
+		}
+
+		if (count > 0) {
+			logger.info(Messages.getString("WriteAheadLog.recovered", new Object[] { count, filename })); //$NON-NLS-1$
+		}
+
+		pfile.force();
+
+		channel.truncate(0);
+		channel.force(false);
+	}
+
+	/**
+	 * Create the log entry for the new image of a record.
+	 * 
+	 * @param recNo  record number.
+	 * @param record the new image of the record.
+	 * @return log entry.
+	 */
+	private static byte[] encode(int recNo, Record record) {
+		byte[] entry = new byte[ENTRY_HEADER_LENGTH + record.length() + ENTRY_CHECKSUM_LENGTH];
+
+		ByteBuffer bb = ByteBuffer.wrap(entry);
+		bb.putInt(recNo);
+		bb.putInt(record.length());
+		record.writeTo(entry, ENTRY_HEADER_LENGTH);
+		bb.putLong(entry.length - ENTRY_CHECKSUM_LENGTH, checksum(entry, entry.length - ENTRY_CHECKSUM_LENGTH));
+
+		return entry;
+	}
+
+	/**
+	 * Calculate the CRC32 checksum of the bytes in a log entry.
+	 * 
+	 * @param entry  log entry.
+	 * @param length the number of bytes to be calculated.
+	 * @return checksum value.
+	 */
+	private static long checksum(byte[] entry, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(entry, 0, length);
+		return crc.getValue();
+	}
+
+	/**
+	 * Interface to do further processing after the data file has been forced to
+	 * the storage device by a periodic checkpoint.
+	 * 
+	 * @author Stephen Liu
+	 * 
+	 */
+	public interface CheckpointListener {
+		/**
+		 * Process after a checkpoint.
+		 * 
+		 * @throws IOException if an I/O error occurs.
+		 */
+		public void checkpointed() throws IOException;
+	}
+
+	/**
+	 * The background task which periodically takes a checkpoint.
+	 * 
+	 * @author Stephen Liu
+	 * 
+	 */
+	private class Checkpointer implements Runnable {
+		private long checkpointInterval;
+
+		public Checkpointer(long checkpointInterval) {
+			this.checkpointInterval = checkpointInterval;
+		}
+
+		public void run() {
+
+			while (true) {
+				try {
+					synchronized (this) {
+						this.wait(checkpointInterval);
+					}
+				} catch (InterruptedException e) {
+					//
+				}
+
+				try {
+					checkpoint();
+
+					CheckpointListener listener = checkpointListener;
+					if (listener != null) {
+						listener.checkpointed();
+					}
+				} catch (IOException e) {
+					logger.warning(Messages.getString("WriteAheadLog.checkpointFailed", //$NON-NLS-1$
+							new Object[] { filename, e.getMessage() }));
+				}
+			}
+
+		}
+	}
+
+}
@@ -11,6 +11,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 
 import stephen.common.Messages;
+import stephen.db.RangeCriterion;
 
 /**
  * This class describes the database operation command. Each command has a
@@ -84,6 +85,36 @@ public class Command implements Serializable {
 			buffer.append(Arrays.asList(criteria));
 			break;
 
+		case FIND_RANGE:
+			buffer.append(Arrays.asList((String[]) parameters[0]));
+			buffer.append(",");
+			buffer.append(Arrays.asList((RangeCriterion[]) parameters[1]));
+			break;
+
+		case FIND_SPEC:
+			buffer.append(parameters[0]);
+			break;
+
+		case FIND_SPEC_PAGE:
+			buffer.append(parameters[0]);
+			buffer.append(",");
+			buffer.append(parameters[1]);
+			buffer.append(",");
+			buffer.append(parameters[2]);
+			break;
+
+		case FIND_SPEC_TOP:
+			buffer.append(parameters[0]);
+			buffer.append(",");
+			buffer.append(parameters[1]);
+			buffer.append(",");
+			buffer.append(parameters[2]);
+			break;
+
+		case FIND_MULTI:
+			buffer.append(Arrays.deepToString((String[][]) parameters[0]));
+			break;
+
 		case ISLOCKED:
 			recNo = ((Integer) parameters[0]).intValue();
 			buffer.append(recNo);
@@ -27,6 +27,31 @@ public enum CommandType {
      * Find records from data store based on a criteria.
      */
     FIND,
+    /**
+     * Find records from data store based on a criteria and range conditions.
+     */
+    FIND_RANGE,
+    /**
+     * Find records from data store based on a tree of search conditions and
+     * return the data of the matched records.
+     */
+    FIND_SPEC,
+    /**
+     * Find one page of records from data store based on a tree of search
+     * conditions and return the data of the matched records in the page.
+     */
+    FIND_SPEC_PAGE,
+    /**
+     * Find the first records in a sort order from data store based on a tree of
+     * search conditions and return the data of at most a limited number of
+     * them.
+     */
+    FIND_SPEC_TOP,
+    /**
+     * Find records from data store based on a set of criteria in one traversal
+     * of the data file.
+     */
+    FIND_MULTI,
     /**
      * Determine if a specified record is locked or not.
      */
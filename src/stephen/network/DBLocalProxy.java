@@ -11,10 +11,16 @@ import java.io.IOException;
 import java.util.logging.Logger;
 
 import stephen.common.Messages;
+import stephen.db.ConditionSearchable;
 import stephen.db.DBMain;
 import stephen.db.DBSchemaV2;
 import stephen.db.DBMainImpl;
 import stephen.db.DuplicateKeyException;
+import stephen.db.MultiSearchable;
+import stephen.db.RangeCriterion;
+import stephen.db.RangeSearchable;
+import stephen.db.SearchCondition;
+import stephen.db.SortOrder;
 import stephen.db.exception.RecordNotFoundException;
 
 /**
@@ -77,6 +83,36 @@ public class DBLocalProxy implements CommandHandler {
 			result = dbEngine.find(criteria);
 			break;
 
+		case FIND_RANGE:
+			criteria = (String[]) parameters[0];
+			RangeCriterion[] ranges = (RangeCriterion[]) parameters[1];
+			result = ((RangeSearchable) dbEngine).find(criteria, ranges);
+			break;
+
+		case FIND_SPEC:
+			SearchCondition condition = (SearchCondition) parameters[0];
+			result = ((ConditionSearchable) dbEngine).select(condition);
+			break;
+
+		case FIND_SPEC_PAGE:
+			condition = (SearchCondition) parameters[0];
+			int fromRecNo = ((Integer) parameters[1]).intValue();
+			int maxRows = ((Integer) parameters[2]).intValue();
+			result = ((ConditionSearchable) dbEngine).select(condition, fromRecNo, maxRows);
+			break;
+
+		case FIND_SPEC_TOP:
+			condition = (SearchCondition) parameters[0];
+			SortOrder order = (SortOrder) parameters[1];
+			int limit = ((Integer) parameters[2]).intValue();
+			result = ((ConditionSearchable) dbEngine).select(condition, order, limit);
+			break;
+
+		case FIND_MULTI:
+			String[][] criteriaSet = (String[][]) parameters[0];
+			result = ((MultiSearchable) dbEngine).find(criteriaSet);
+			break;
+
 		case ISLOCKED:
 			recNo = ((Integer) parameters[0]).intValue();
 			result = dbEngine.isLocked(recNo);
@@ -18,7 +18,13 @@ import java.util.logging.Logger;
 
 import stephen.common.Messages;
 import stephen.common.Utils;
+import stephen.db.ConditionSearchable;
 import stephen.db.DBMain;
+import stephen.db.MultiSearchable;
+import stephen.db.RangeCriterion;
+import stephen.db.RangeSearchable;
+import stephen.db.SearchCondition;
+import stephen.db.SortOrder;
 import stephen.db.lock.LockManager;
 import stephen.network.Command;
 import stephen.network.CommandHandler;
@@ -170,6 +176,36 @@ public class ServiceProvider implements Runnable {
 					result.setResult(dbEngine.find(criteria));
 					break;
 
+				case FIND_RANGE:
+					criteria = (String[]) parameters[0];
+					RangeCriterion[] ranges = (RangeCriterion[]) parameters[1];
+					result.setResult(((RangeSearchable) dbEngine).find(criteria, ranges));
+					break;
+
+				case FIND_SPEC:
+					SearchCondition condition = (SearchCondition) parameters[0];
+					result.setResult(((ConditionSearchable) dbEngine).select(condition));
+					break;
+
+				case FIND_SPEC_PAGE:
+					condition = (SearchCondition) parameters[0];
+					int fromRecNo = ((Integer) parameters[1]).intValue();
+					int maxRows = ((Integer) parameters[2]).intValue();
+					result.setResult(((ConditionSearchable) dbEngine).select(condition, fromRecNo, maxRows));
+					break;
+
+				case FIND_SPEC_TOP:
+					condition = (SearchCondition) parameters[0];
+					SortOrder order = (SortOrder) parameters[1];
+					int limit = ((Integer) parameters[2]).intValue();
+					result.setResult(((ConditionSearchable) dbEngine).select(condition, order, limit));
+					break;
+
+				case FIND_MULTI:
+					String[][] criteriaSet = (String[][]) parameters[0];
+					result.setResult(((MultiSearchable) dbEngine).find(criteriaSet));
+					break;
+
 				case ISLOCKED:
 					recNo = ((Integer) parameters[0]).intValue();
 					result.setResult(dbEngine.isLocked(recNo));
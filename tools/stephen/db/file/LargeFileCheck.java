@@ -0,0 +1,241 @@
+/*
+ * Basic Java skill show cases
+ *
+ * Copyright (c) 2024 Stephen Liu. All Rights Reserved. 
+ *
+ */
+
+package stephen.db.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import stephen.common.Constant;
+
+/**
+ * LargeFileCheck is a standalone program which checks the 64-bit addressing of
+ * the records in a data file larger than 2 GB. It generates a data file whose
+ * record data area goes past the file position 2^31, then writes and reads
+ * back the records above that position through both <code>PhysicalFile</code>
+ * and <code>MappedPhysicalFile</code>.
+ * <p>
+ * The header and schema of the generated file are copied from an existing data
+ * file; each generated record carries its own record number in the field
+ * 'name', so every record read back can be verified. The generated file takes
+ * a little more than 2 GB of disk space and is deleted after the check unless
+ * it fails.
+ * <p>
+ * The program isn't part of the application; it is compiled together with the
+ * application sources and run by hand.
+ * <p>
+ * Usage:<br>
+ * <code>
+ *   java stephen.db.file.LargeFileCheck &lt;template data file&gt; &lt;generated file&gt;
+ * </code>
+ * 
+ * @see stephen.db.file.PhysicalFile
+ * @see stephen.db.file.MappedPhysicalFile
+ * @author Stephen Liu
+ * 
+ */
+public class LargeFileCheck {
+	private static Logger logger = Logger.getLogger(LargeFileCheck.class.getName());
+
+	// the file position which doesn't fit in an int.
+	private static final long BOUNDARY = 1L << 31;
+
+	// number of records generated after the boundary.
+	private static final int EXTRA_RECORDS = 2 * Constant.RECORD_FETCHSIZE;
+
+	// bytes written into the generated file at a time.
+	private static final int WRITE_BLOCK_SIZE = 4 * 1024 * 1024;
+
+	private final String filename;
+	private long dataSectionStartPointer;
+	private int recordStorageLength;
+
+	// number of generated records, and of all records including the added ones.
+	private int generatedCount;
+	private int recordCount;
+
+	private LargeFileCheck(String filename) {
+		this.filename = filename;
+	}
+
+	/**
+	 * Generate the data file, check it by each kind of physical file and
+	 * delete it.
+	 * 
+	 * @param args -- the template data file and the generated file.
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			logger.severe("Usage: java stephen.db.file.LargeFileCheck <template data file> <generated file>"); //$NON-NLS-1$
+			System.exit(1);
+		}
+
+		LargeFileCheck check = new LargeFileCheck(args[1]);
+		try {
+			check.generate(args[0]);
+			check.verify(false);
+
+			// the records changed by the first check are generated again.
+			check.generate(args[0]);
+			check.verify(true);
+		} catch (Exception e) {
+			logger.log(Level.SEVERE, "the check failed; the generated file is kept", e); //$NON-NLS-1$
+			System.exit(1);
+		}
+
+		new File(args[1]).delete();
+		logger.info("OK"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Generate a data file whose last records are beyond the boundary. The
+	 * header and schema are copied from the template, then the records are
+	 * appended block by block.
+	 * 
+	 * @param template existing data file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private void generate(String template) throws IOException {
+		byte[] head;
+		Record record;
+		try (PhysicalFile source = new PhysicalFile(template);
+				RandomAccessFile input = new RandomAccessFile(template, "r")) { //$NON-NLS-1$
+			dataSectionStartPointer = source.getDataSectionStartPointer();
+			recordStorageLength = source.getRecordStorageLength();
+			record = source.getEmptyRecord();
+
+			head = new byte[(int) dataSectionStartPointer];
+			input.readFully(head);
+		}
+		generatedCount = (int) ((BOUNDARY - dataSectionStartPointer) / recordStorageLength) + EXTRA_RECORDS;
+		recordCount = generatedCount;
+
+		int recordsPerBlock = WRITE_BLOCK_SIZE / recordStorageLength;
+		byte[] block = new byte[recordsPerBlock * recordStorageLength];
+
+		try (RandomAccessFile output = new RandomAccessFile(filename, "rw")) { //$NON-NLS-1$
+			output.setLength(0);
+			output.write(head);
+
+			int recNo = 0;
+			while (recNo < generatedCount) {
+				int count = Math.min(recordsPerBlock, generatedCount - recNo);
+				for (int i = 0; i < count; i++) {
+					record.setData(getData(recNo + i, "generated")); //$NON-NLS-1$
+					record.writeTo(block, i * recordStorageLength);
+				}
+				output.write(block, 0, count * recordStorageLength);
+				recNo += count;
+			}
+		}
+
+		logger.info(String.format("generated %d records, %d bytes", generatedCount, //$NON-NLS-1$
+				dataSectionStartPointer + (long) generatedCount * recordStorageLength));
+	}
+
+	/**
+	 * Read the records around the boundary, update one of them, add a new one
+	 * at the end, and read both back after the data file is opened again.
+	 * 
+	 * @param mapped check MappedPhysicalFile instead of PhysicalFile.
+	 * @throws IOException if an I/O error occurs or a check fails.
+	 */
+	private void verify(boolean mapped) throws IOException {
+		int boundaryRecNo = (int) ((BOUNDARY - dataSectionStartPointer + recordStorageLength - 1)
+				/ recordStorageLength);
+		String tag = mapped ? "mapped" : "plain"; //$NON-NLS-1$ //$NON-NLS-2$
+		int newRecNo;
+
+		try (PhysicalFile pfile = open(mapped)) {
+			check(pfile.getRecordCount() == recordCount, "record count " + pfile.getRecordCount()); //$NON-NLS-1$
+
+			// single records on both sides of the boundary.
+			int[] recNos = { 0, boundaryRecNo - 1, boundaryRecNo, generatedCount - 1 };
+			for (int recNo : recNos) {
+				checkRecord(pfile.getRecord(recNo), recNo, "generated"); //$NON-NLS-1$
+			}
+
+			// blocks crossing the boundary and the end of the first mapped segment.
+			int segmentRecNo = (int) (Math.min(Constant.MAPPED_SEGMENT_SIZE, Integer.MAX_VALUE) / recordStorageLength);
+			int[] fromRecNos = { boundaryRecNo - 10, segmentRecNo - 10 };
+			for (int fromRecNo : fromRecNos) {
+				RecordBlock rb = pfile.getRecordBlock(fromRecNo, 20);
+				int recNo = fromRecNo;
+				for (Record record : rb) {
+					checkRecord(record, recNo++, "generated"); //$NON-NLS-1$
+				}
+				check(recNo == fromRecNo + 20, "record block ends at " + recNo); //$NON-NLS-1$
+			}
+
+			// a scan crossing the boundary to the last generated record.
+			final int[] next = { boundaryRecNo - Constant.RECORD_FETCHSIZE / 2 };
+			pfile.scan(next[0], generatedCount, new RecordVisitor() {
+				public void visit(int recNo, Record record) {
+					if (recNo != next[0] || !isGenerated(record, recNo, "generated")) { //$NON-NLS-1$
+						throw new IllegalStateException("scan at record " + recNo); //$NON-NLS-1$
+					}
+					next[0]++;
+				}
+			});
+			check(next[0] == generatedCount, "scan ends at " + next[0]); //$NON-NLS-1$
+
+			// write above the boundary.
+			Record record = pfile.getEmptyRecord();
+			record.setData(getData(boundaryRecNo + 1, tag));
+			pfile.updateRecord(boundaryRecNo + 1, record);
+
+			newRecNo = pfile.add(record);
+			check(newRecNo == recordCount, "new record " + newRecNo); //$NON-NLS-1$
+			pfile.force();
+			recordCount++;
+		}
+
+		try (PhysicalFile pfile = open(mapped); RandomAccessFile raw = new RandomAccessFile(filename, "r")) { //$NON-NLS-1$
+			checkRecord(pfile.getRecord(boundaryRecNo + 1), boundaryRecNo + 1, tag);
+			checkRecord(pfile.getRecord(newRecNo), boundaryRecNo + 1, tag);
+			checkRecord(pfile.getRecord(boundaryRecNo + 2), boundaryRecNo + 2, "generated"); //$NON-NLS-1$
+
+			// the new record is at the expected offset in the data file.
+			byte[] content = new byte[recordStorageLength];
+			raw.seek(dataSectionStartPointer + (long) newRecNo * recordStorageLength);
+			raw.readFully(content);
+
+			Record stored = pfile.getEmptyRecord();
+			stored.readFrom(content, 0);
+			checkRecord(stored, boundaryRecNo + 1, tag);
+		}
+
+		logger.info(String.format("%s: records %d-%d verified", tag, boundaryRecNo, newRecNo)); //$NON-NLS-1$
+	}
+
+	private PhysicalFile open(boolean mapped) throws IOException {
+		return mapped ? new MappedPhysicalFile(filename) : new PhysicalFile(filename);
+	}
+
+	private static String[] getData(int recNo, String tag) {
+		return new String[] { "Hotel " + recNo, tag }; //$NON-NLS-1$
+	}
+
+	private static boolean isGenerated(Record record, int recNo, String tag) {
+		return record != null && !record.isDeleted() && record.getString(0).trim().equals("Hotel " + recNo) //$NON-NLS-1$
+				&& record.getString(1).trim().equals(tag);
+	}
+
+	private static void checkRecord(Record record, int recNo, String tag) throws IOException {
+		check(isGenerated(record, recNo, tag), "record " + recNo); //$NON-NLS-1$
+	}
+
+	private static void check(boolean condition, String what) throws IOException {
+		if (!condition) {
+			throw new IOException("check failed: " + what); //$NON-NLS-1$
+		}
+	}
+
+}